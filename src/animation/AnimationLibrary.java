@@ -0,0 +1,134 @@
+package animation;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import character.CharacterState;
+
+/**
+ * Holds the frames and movement of each of a character's animations once, so
+ * that any number of characters sharing the same sprite set can play them.
+ * Animations created from the library hold only their own playback state:
+ * frame, play count and position.
+ *
+ * The library's frames are shared, so they must not be modified.
+ */
+public class AnimationLibrary {
+	private final EnumMap<CharacterState, Entry> entries = new EnumMap<CharacterState, Entry>(CharacterState.class);
+
+	public AnimationLibrary() {
+	}
+
+	/**
+	 * Constructor, taking every state's frames from a packed sprite atlas.
+	 *
+	 * @param atlas
+	 *            The atlas holding the frames.
+	 * @param movement
+	 *            The movement of each animation, by state. States without
+	 *            frames in the atlas are skipped.
+	 */
+	public AnimationLibrary(SpriteAtlas atlas, Map<CharacterState, List<Point>> movement) {
+		for (Map.Entry<CharacterState, List<Point>> animation : movement.entrySet()) {
+			CharacterState state = animation.getKey();
+			List<BufferedImage> frames = atlas.getFrames(state);
+			if (frames != null) {
+				add(state, frames, atlas.getRegions(state), animation.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Adds, or replaces, the animation for a state. The lists are copied.
+	 *
+	 * @param state
+	 *            The state the animation is played in.
+	 * @param frames
+	 *            The frames of the animation.
+	 * @param movement
+	 *            The (x, y) change applied on reaching each frame.
+	 */
+	public void put(CharacterState state, List<BufferedImage> frames, List<Point> movement) {
+		add(state, frames, null, movement);
+	}
+
+	/**
+	 * Creates an animation for a state, sharing the library's frames and
+	 * movement.
+	 *
+	 * @param state
+	 *            The state to play the animation of.
+	 * @param x
+	 *            The starting x-position.
+	 * @param y
+	 *            The starting y-position.
+	 * @param times
+	 *            How many times to play the animation; -1 = forever.
+	 * @return A new animation, on its first frame.
+	 */
+	public CharacterAnimation createAnimation(CharacterState state, int x, int y, int times) {
+		Entry entry = entries.get(state);
+		if (entry == null) {
+			throw new IllegalArgumentException("No animation for state " + state + "!");
+		}
+		return new CharacterAnimation(state, entry.frames, entry.motion, entry.regions, x, y, times);
+	}
+
+	public boolean contains(CharacterState state) {
+		return entries.containsKey(state);
+	}
+
+	/**
+	 * Returns the shared frames of a state's animation.
+	 *
+	 * @param state
+	 *            The state to look up.
+	 * @return The frames, or null if the library has no animation for the
+	 *         state.
+	 */
+	public FrameSource getFrames(CharacterState state) {
+		Entry entry = entries.get(state);
+		return (entry == null) ? null : entry.frames;
+	}
+
+	/**
+	 * Returns the shared movement of a state's animation.
+	 *
+	 * @param state
+	 *            The state to look up.
+	 * @return The movement, or null if the library has no animation for the
+	 *         state.
+	 */
+	public MotionTable getMotion(CharacterState state) {
+		Entry entry = entries.get(state);
+		return (entry == null) ? null : entry.motion;
+	}
+
+	private void add(CharacterState state, List<BufferedImage> frames, List<SpriteAtlas.Region> regions, List<Point> movement) {
+		if (frames.isEmpty()) {
+			throw new IllegalArgumentException("Cannot add an animation with no frames!");
+		}
+		if (movement.size() != frames.size()) {
+			throw new IllegalArgumentException("Cannot add an animation with " + frames.size() + " frames and " + movement.size() + " moves!");
+		}
+		List<BufferedImage> framesCopy = Collections.unmodifiableList(new ArrayList<BufferedImage>(frames));
+		entries.put(state, new Entry(new ListFrameSource(framesCopy), new MotionTable(movement), regions));
+	}
+
+	private static class Entry {
+		final FrameSource frames;
+		final MotionTable motion;
+		final List<SpriteAtlas.Region> regions;
+
+		Entry(FrameSource frames, MotionTable motion, List<SpriteAtlas.Region> regions) {
+			this.frames = frames;
+			this.motion = motion;
+			this.regions = regions;
+		}
+	}
+}
@@ -0,0 +1,297 @@
+package animation;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Plays the movement of many animated entities at once. Instead of one
+ * <code>CharacterAnimation</code> object per entity, the playback state of
+ * every entity is kept in parallel primitive arrays, and every animation's
+ * movement is kept in flat tables, so update() is one tight loop.
+ *
+ * Each entity behaves exactly as a <code>CharacterAnimation</code> with the
+ * same frames, movement, position and play count would.
+ */
+public class AnimationSystem {
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Animations: frame count, and where their movement starts in dx/dy.
+	private int animationCount = 0;
+	private int[] frameCounts = new int[INITIAL_CAPACITY];
+	private int[] movementOffsets = new int[INITIAL_CAPACITY];
+	private int movementLength = 0;
+	private int[] dx = new int[INITIAL_CAPACITY];
+	private int[] dy = new int[INITIAL_CAPACITY];
+
+	// Entities
+	private int entityCount = 0;
+	private int[] animation;
+	private int[] currentFrame;
+	private int[] times;
+	private int[] x;
+	private int[] y;
+
+	// Parallel update
+	private ExecutorService executor = null;
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private int chunks = 1;
+
+	public AnimationSystem() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            The number of entities to make room for up front.
+	 */
+	public AnimationSystem(int capacity) {
+		capacity = Math.max(capacity, 1);
+		animation = new int[capacity];
+		currentFrame = new int[capacity];
+		times = new int[capacity];
+		x = new int[capacity];
+		y = new int[capacity];
+	}
+
+	/**
+	 * Registers an animation's movement, to be shared by any number of
+	 * entities.
+	 *
+	 * @param movement
+	 *            The (x, y) change applied on reaching each frame, one per
+	 *            frame.
+	 * @return The animation's id, for addEntity().
+	 */
+	public int addAnimation(List<Point> movement) {
+		int frames = movement.size();
+		if (frames < 1) {
+			throw new IllegalArgumentException("An animation needs at least one frame!");
+		}
+		if (animationCount == frameCounts.length) {
+			frameCounts = grow(frameCounts, animationCount * 2);
+			movementOffsets = grow(movementOffsets, animationCount * 2);
+		}
+		if (movementLength + frames > dx.length) {
+			int size = Math.max(dx.length * 2, movementLength + frames);
+			dx = grow(dx, size);
+			dy = grow(dy, size);
+		}
+		for (int i = 0; i < frames; i++) {
+			Point step = movement.get(i);
+			dx[movementLength + i] = step.x;
+			dy[movementLength + i] = step.y;
+		}
+		frameCounts[animationCount] = frames;
+		movementOffsets[animationCount] = movementLength;
+		movementLength += frames;
+		return animationCount++;
+	}
+
+	/**
+	 * Adds an entity, starting at the first frame of its animation.
+	 *
+	 * @param animationId
+	 *            The animation to play, from addAnimation().
+	 * @param x
+	 *            The starting x-position.
+	 * @param y
+	 *            The starting y-position.
+	 * @param times
+	 *            How many times to play the animation; -1 = forever.
+	 * @return The entity's id.
+	 */
+	public int addEntity(int animationId, int x, int y, int times) {
+		if (animationId < 0 || animationId >= animationCount) {
+			throw new IllegalArgumentException("Unknown animation: " + animationId);
+		}
+		if (entityCount == animation.length) {
+			int size = entityCount * 2;
+			animation = grow(animation, size);
+			currentFrame = grow(currentFrame, size);
+			this.times = grow(this.times, size);
+			this.x = grow(this.x, size);
+			this.y = grow(this.y, size);
+		}
+		animation[entityCount] = animationId;
+		currentFrame[entityCount] = 0;
+		this.times[entityCount] = times;
+		this.x[entityCount] = x;
+		this.y[entityCount] = y;
+		return entityCount++;
+	}
+
+	/**
+	 * Updates every entity by one tick, as CharacterAnimation.update() does.
+	 * Large systems are split into chunks and updated in parallel, if an
+	 * executor has been set.
+	 */
+	public void update() {
+		if (executor == null || entityCount < parallelThreshold || chunks < 2) {
+			update(0, entityCount);
+			return;
+		}
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+		int chunkSize = (entityCount + chunks - 1) / chunks;
+		for (int start = 0; start < entityCount; start += chunkSize) {
+			final int from = start;
+			final int to = Math.min(start + chunkSize, entityCount);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					update(from, to);
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> done : executor.invokeAll(tasks)) {
+				done.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during update", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Update failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Updates entities [from, to) by one tick.
+	 */
+	private void update(int from, int to) {
+		final int[] animation = this.animation;
+		final int[] currentFrame = this.currentFrame;
+		final int[] times = this.times;
+		final int[] x = this.x;
+		final int[] y = this.y;
+		final int[] frameCounts = this.frameCounts;
+		final int[] movementOffsets = this.movementOffsets;
+		final int[] dx = this.dx;
+		final int[] dy = this.dy;
+
+		for (int e = from; e < to; e++) {
+			int t = times[e];
+			if ((t > 0) || (t == -1)) {
+				int a = animation[e];
+				int frame = currentFrame[e];
+				if (frame == (frameCounts[a] - 1)) {
+					frame = 0;
+					if (t > 0) {
+						times[e] = t - 1;
+					}
+				} else {
+					frame++;
+				}
+				currentFrame[e] = frame;
+
+				int m = movementOffsets[a] + frame;
+				x[e] += dx[m];
+				y[e] += dy[m];
+			}
+		}
+	}
+
+	/**
+	 * Updates in parallel on the given executor once there are enough
+	 * entities to make it worthwhile.
+	 *
+	 * @param executor
+	 *            The executor to update on, or null to always update on the
+	 *            calling thread.
+	 * @param chunks
+	 *            How many pieces to split the entities into, e.g. the number
+	 *            of threads.
+	 * @param parallelThreshold
+	 *            The least number of entities to update in parallel.
+	 */
+	public void setExecutor(ExecutorService executor, int chunks, int parallelThreshold) {
+		this.executor = executor;
+		this.chunks = chunks;
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	public void notifyStop(int entity) {
+		checkEntity(entity);
+		times[entity] = 1;
+	}
+
+	public void resetAnimation(int entity) {
+		checkEntity(entity);
+		currentFrame[entity] = 0;
+	}
+
+	public void stopAnimation(int entity) {
+		checkEntity(entity);
+		times[entity] = 0;
+	}
+
+	public void playOnce(int entity) {
+		checkEntity(entity);
+		if (times[entity] == 0) {
+			times[entity] = 1;
+		} else if (times[entity] > 0) {
+			times[entity]++;
+		}
+	}
+
+	public boolean getAnimationPlaying(int entity) {
+		checkEntity(entity);
+		return (times[entity] != 0);
+	}
+
+	public int getCurrentFrame(int entity) {
+		checkEntity(entity);
+		return currentFrame[entity];
+	}
+
+	public int getTimes(int entity) {
+		checkEntity(entity);
+		return times[entity];
+	}
+
+	public int getX(int entity) {
+		checkEntity(entity);
+		return x[entity];
+	}
+
+	public int getY(int entity) {
+		checkEntity(entity);
+		return y[entity];
+	}
+
+	public void setX(int entity, int x) {
+		checkEntity(entity);
+		this.x[entity] = x;
+	}
+
+	public void setY(int entity, int y) {
+		checkEntity(entity);
+		this.y[entity] = y;
+	}
+
+	public int getEntityCount() {
+		return entityCount;
+	}
+
+	private void checkEntity(int entity) {
+		if (entity < 0 || entity >= entityCount) {
+			throw new IndexOutOfBoundsException("Entity " + entity + " of " + entityCount);
+		}
+	}
+
+	private static int[] grow(int[] array, int size) {
+		int[] grown = new int[size];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
@@ -20,18 +20,47 @@ public class CharacterAnimation implements Animation {
 	private CharacterState state;
 
 	// Animation
-	private List<BufferedImage> frames;
+	private FrameSource frames;
+	private List<SpriteAtlas.Region> regions;
 	private int currentFrame;
 	private int times;
 
 	// Position
 	private int x, y;
-	private List<Point> movement;
+	private MotionTable motion;
 
 	public CharacterAnimation(CharacterState state, List<BufferedImage> frames, List<Point> movement, int x, int y, int times) {
+		this(state, new ListFrameSource(frames), movement, x, y, times);
+	}
+
+	/**
+	 * Constructor, taking frames from a <code>FrameSource</code>, e.g. a
+	 * <code>LazyFrameSource</code> that loads frames only as they are needed.
+	 * The source is told to prefetch as the animation plays, and to release its
+	 * frames when the animation stops.
+	 */
+	public CharacterAnimation(CharacterState state, FrameSource frames, List<Point> movement, int x, int y, int times) {
+		this(state, frames, new MotionTable(movement), null, x, y, times);
+	}
+
+	/**
+	 * Constructor, taking this state's frames from a packed sprite atlas.
+	 * getImage() then returns views onto the atlas pages, and getRegion()
+	 * gives the rectangle to draw from.
+	 */
+	public CharacterAnimation(CharacterState state, SpriteAtlas atlas, List<Point> movement, int x, int y, int times) {
+		this(state, new ListFrameSource(atlas.getFrames(state)), new MotionTable(movement), atlas.getRegions(state), x, y, times);
+	}
+
+	/**
+	 * Constructor, using frames, movement and regions held by an
+	 * <code>AnimationLibrary</code> and shared with other animations.
+	 */
+	CharacterAnimation(CharacterState state, FrameSource frames, MotionTable motion, List<SpriteAtlas.Region> regions, int x, int y, int times) {
 		this.state = state;
 		this.frames = frames;
-		this.movement = movement;
+		this.motion = motion;
+		this.regions = regions;
 		this.x = x;
 		this.y = y;
 		this.times = times;
@@ -48,6 +77,7 @@ public class CharacterAnimation implements Animation {
 
 	public void stopAnimation() {
 		times = 0;
+		frames.release();
 	}
 
 	public void playOnce() {
@@ -68,6 +98,9 @@ public class CharacterAnimation implements Animation {
 				if (times > 0) {
 					// Check if we want to stop
 					times--;
+					if (times == 0) {
+						frames.release();
+					}
 				}
 			} else {
 				// Increment frame
@@ -75,18 +108,94 @@ public class CharacterAnimation implements Animation {
 			}
 
 			// Either way, update (x, y) position.
-			x += movement.get(currentFrame).x;
-			y += movement.get(currentFrame).y;
+			x += motion.getDX(currentFrame);
+			y += motion.getDY(currentFrame);
+
+			if (times != 0) {
+				frames.prefetch(currentFrame);
+			}
 		}
 
 	}
 
+	/**
+	 * Plays the animation on by a number of ticks at once, ending with exactly
+	 * the frame, position and play count that calling update() that many
+	 * times would give, but in constant time.
+	 * 
+	 * @param ticks
+	 *            The number of updates to skip over.
+	 */
+	public void advance(long ticks) {
+		if (ticks < 0) {
+			throw new IllegalArgumentException("Cannot advance backwards!");
+		}
+		if (ticks == 0 || !((times > 0) || (times == -1))) {
+			// Not playing
+			return;
+		}
+
+		int frameCount = frames.size();
+		long steps = ticks;
+		if (times > 0) {
+			// The first loop ends on reaching frame 0, each later one takes a
+			// whole loop; the animation stops at the end of the last.
+			long untilStop = (frameCount - currentFrame) + (long) (times - 1) * frameCount;
+			steps = Math.min(ticks, untilStop);
+		}
+
+		x += (int) motion.getDistanceX(currentFrame, steps);
+		y += (int) motion.getDistanceY(currentFrame, steps);
+		long loops = steps / frameCount + (currentFrame + steps % frameCount) / frameCount;
+		currentFrame = (int) ((currentFrame + steps % frameCount) % frameCount);
+
+		if (times > 0) {
+			times -= (int) loops;
+			if (times == 0) {
+				frames.release();
+				return;
+			}
+		}
+		frames.prefetch(currentFrame);
+	}
+
+	/**
+	 * Plays the animation on until it reaches the given frame, in constant
+	 * time. Does nothing if the animation is already on that frame, and stops
+	 * early if the animation finishes first.
+	 * 
+	 * @param frame
+	 *            The frame to play on to.
+	 */
+	public void seek(int frame) {
+		int frameCount = frames.size();
+		if (frame < 0 || frame >= frameCount) {
+			throw new IllegalArgumentException("Cannot seek to frame " + frame + " of " + frameCount + "!");
+		}
+		advance((frame - currentFrame + frameCount) % frameCount);
+	}
+
+	public int getCurrentFrame() {
+		return currentFrame;
+	}
+
 	public boolean getAnimationPlaying() {
 		return (times != 0);
 	}
 
 	public BufferedImage getImage() {
-		return frames.get(currentFrame);
+		return frames.getFrame(currentFrame);
+	}
+
+	/**
+	 * Returns where the current frame is stored in the sprite atlas, so it can
+	 * be drawn straight from the atlas page.
+	 * 
+	 * @return The current frame's region, or null if this animation was not
+	 *         built from an atlas.
+	 */
+	public SpriteAtlas.Region getRegion() {
+		return (regions == null) ? null : regions.get(currentFrame);
 	}
 
 	public int getX() {
@@ -0,0 +1,41 @@
+package animation;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Supplies the frames of an animation. Frames may be held in memory up front,
+ * or decoded only when they are first needed.
+ */
+public interface FrameSource {
+
+	/**
+	 * Returns the number of frames in the animation.
+	 * 
+	 * @return The total number of frames.
+	 */
+	public int size();
+
+	/**
+	 * Returns a single frame, loading it first if necessary.
+	 * 
+	 * @param index
+	 *            The frame number, starting at 0.
+	 * @return The frame.
+	 */
+	public BufferedImage getFrame(int index);
+
+	/**
+	 * Hints that the frames following the given one will be needed soon, so
+	 * they can be loaded in the background.
+	 * 
+	 * @param index
+	 *            The frame currently being shown.
+	 */
+	public void prefetch(int index);
+
+	/**
+	 * Hints that the animation is no longer playing, so any frames loaded on
+	 * demand can be dropped. They will be loaded again if needed.
+	 */
+	public void release();
+}
@@ -0,0 +1,182 @@
+package animation;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import fileHandling.FileHandler;
+
+/**
+ * A <code>FrameSource</code> that loads each frame from disk the first time it
+ * is needed, and loads the next few frames in the background as the
+ * animation plays. Frames are dropped when the animation stops.
+ * 
+ * Frames that fail to load are returned as <code>null</code>, as
+ * <code>FileHandler.loadImage</code> does.
+ */
+public class LazyFrameSource implements FrameSource {
+	public static final int DEFAULT_PREFETCH = 4;
+
+	// Shared by every source that is not given its own executor.
+	private static ExecutorService sharedExecutor;
+
+	private final FileHandler fileHandler;
+	private final List<String> names;
+	private final int prefetchCount;
+	private final ExecutorService executor;
+	// One load per frame; null until the frame is first requested.
+	private final List<FutureTask<BufferedImage>> loads;
+
+	/**
+	 * Constructor, prefetching the default number of frames on a shared pool
+	 * of background threads.
+	 * 
+	 * @param fileHandler
+	 *            The file handler to load frames with, from its input folder.
+	 * @param names
+	 *            The file name of each frame, in order.
+	 */
+	public LazyFrameSource(FileHandler fileHandler, List<String> names) {
+		this(fileHandler, names, DEFAULT_PREFETCH, getSharedExecutor());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fileHandler
+	 *            The file handler to load frames with, from its input folder.
+	 * @param names
+	 *            The file name of each frame, in order.
+	 * @param prefetchCount
+	 *            How many frames ahead of the current one to load.
+	 * @param executor
+	 *            Where to load frames in the background.
+	 */
+	public LazyFrameSource(FileHandler fileHandler, List<String> names, int prefetchCount, ExecutorService executor) {
+		if (names.isEmpty()) {
+			throw new IllegalArgumentException("An animation needs at least one frame!");
+		}
+		this.fileHandler = fileHandler;
+		this.names = new ArrayList<String>(names);
+		this.prefetchCount = Math.min(prefetchCount, names.size() - 1);
+		this.executor = executor;
+		this.loads = new ArrayList<FutureTask<BufferedImage>>(names.size());
+		for (int i = 0; i < names.size(); i++) {
+			loads.add(null);
+		}
+	}
+
+	/**
+	 * Constructor, using the same files as
+	 * <code>FileHandler.loadAllImagesMatching</code> would load.
+	 * 
+	 * @param fileHandler
+	 *            The file handler to load frames with, from its input folder.
+	 * @param nameFilter
+	 *            The beginning of the name to find.
+	 * @param getEveryXthItem
+	 *            e.g. 1 = every image; 2 = every second image.
+	 */
+	public LazyFrameSource(FileHandler fileHandler, String nameFilter, int getEveryXthItem) {
+		this(fileHandler, everyXth(fileHandler.getAllImageNamesMatching(nameFilter), getEveryXthItem));
+	}
+
+	public int size() {
+		return names.size();
+	}
+
+	public BufferedImage getFrame(int index) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				FutureTask<BufferedImage> load = loadFor(index);
+				// Loads on this thread unless a background load has already
+				// started.
+				load.run();
+				try {
+					return load.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (CancellationException e) {
+					// Released while loading; start again.
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public void prefetch(int index) {
+		for (int i = 1; i <= prefetchCount; i++) {
+			int next = (index + i) % names.size();
+			FutureTask<BufferedImage> load;
+			synchronized (this) {
+				if (loads.get(next) != null) {
+					continue;
+				}
+				load = loadFor(next);
+			}
+			executor.execute(load);
+		}
+	}
+
+	public synchronized void release() {
+		for (int i = 0; i < loads.size(); i++) {
+			FutureTask<BufferedImage> load = loads.get(i);
+			if (load != null) {
+				load.cancel(false);
+				loads.set(i, null);
+			}
+		}
+	}
+
+	private synchronized FutureTask<BufferedImage> loadFor(final int index) {
+		FutureTask<BufferedImage> load = loads.get(index);
+		if (load == null) {
+			load = new FutureTask<BufferedImage>(new Callable<BufferedImage>() {
+				@Override
+				public BufferedImage call() {
+					return fileHandler.loadImage(names.get(index));
+				}
+			});
+			loads.set(index, load);
+		}
+		return load;
+	}
+
+	private static List<String> everyXth(List<String> names, int every) {
+		if (every < 1) {
+			throw new IllegalArgumentException("Must load at least every image, not every " + every + "!");
+		}
+		List<String> selected = new ArrayList<String>();
+		for (int i = 0; i < names.size(); i += every) {
+			selected.add(names.get(i));
+		}
+		return selected;
+	}
+
+	private static synchronized ExecutorService getSharedExecutor() {
+		if (sharedExecutor == null) {
+			sharedExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "LazyFrameSource-loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sharedExecutor;
+	}
+}
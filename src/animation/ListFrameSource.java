@@ -0,0 +1,31 @@
+package animation;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * A <code>FrameSource</code> over frames that are already in memory.
+ */
+public class ListFrameSource implements FrameSource {
+	private final List<BufferedImage> frames;
+
+	public ListFrameSource(List<BufferedImage> frames) {
+		this.frames = frames;
+	}
+
+	public int size() {
+		return frames.size();
+	}
+
+	public BufferedImage getFrame(int index) {
+		return frames.get(index);
+	}
+
+	public void prefetch(int index) {
+		// Every frame is already loaded
+	}
+
+	public void release() {
+		// Frames are owned by the caller
+	}
+}
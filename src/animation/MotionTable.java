@@ -0,0 +1,98 @@
+package animation;
+
+import java.awt.Point;
+import java.util.List;
+
+/**
+ * The movement of an animation, stored with running totals so that the
+ * distance moved over any number of frames can be found in constant time,
+ * however many times the animation loops.
+ *
+ * Frame i's movement is applied on arriving at frame i, as in
+ * CharacterAnimation.update().
+ */
+public class MotionTable {
+	private final int[] dx;
+	private final int[] dy;
+	// sumX[i] is the total x-movement of frames 0 to i-1; sumX[size] is one loop.
+	private final long[] sumX;
+	private final long[] sumY;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param movement
+	 *            The (x, y) change applied on reaching each frame, one per
+	 *            frame.
+	 */
+	public MotionTable(List<Point> movement) {
+		int frames = movement.size();
+		dx = new int[frames];
+		dy = new int[frames];
+		sumX = new long[frames + 1];
+		sumY = new long[frames + 1];
+		for (int i = 0; i < frames; i++) {
+			Point step = movement.get(i);
+			dx[i] = step.x;
+			dy[i] = step.y;
+			sumX[i + 1] = sumX[i] + step.x;
+			sumY[i + 1] = sumY[i] + step.y;
+		}
+	}
+
+	public int size() {
+		return dx.length;
+	}
+
+	public int getDX(int frame) {
+		return dx[frame];
+	}
+
+	public int getDY(int frame) {
+		return dy[frame];
+	}
+
+	/**
+	 * Returns the total x-movement of playing on from a frame.
+	 *
+	 * @param frame
+	 *            The frame currently shown.
+	 * @param steps
+	 *            How many frames to play on.
+	 * @return The sum of the x-movement of each frame arrived at.
+	 */
+	public long getDistanceX(int frame, long steps) {
+		return distance(sumX, frame, steps);
+	}
+
+	/**
+	 * Returns the total y-movement of playing on from a frame.
+	 *
+	 * @param frame
+	 *            The frame currently shown.
+	 * @param steps
+	 *            How many frames to play on.
+	 * @return The sum of the y-movement of each frame arrived at.
+	 */
+	public long getDistanceY(int frame, long steps) {
+		return distance(sumY, frame, steps);
+	}
+
+	/**
+	 * Sums the movement of frames frame+1 to frame+steps, wrapping around.
+	 */
+	private long distance(long[] sum, int frame, long steps) {
+		int frames = dx.length;
+		long loops = steps / frames;
+		int rest = (int) (steps % frames);
+		long total = loops * sum[frames];
+
+		int end = frame + rest;
+		if (end < frames) {
+			total += sum[end + 1] - sum[frame + 1];
+		} else {
+			total += (sum[frames] - sum[frame + 1]) + sum[end + 1 - frames];
+		}
+		return total;
+	}
+}
@@ -0,0 +1,218 @@
+package animation;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import character.CharacterState;
+
+/**
+ * Packs every animation frame of a character into a few large page images.
+ * Each frame is then described by a <code>Region</code> of a page, and can be
+ * handed out as a sub-image that shares the page's pixel data, so the
+ * original frame images can be discarded.
+ */
+public class SpriteAtlas {
+	public static final int DEFAULT_PAGE_SIZE = 2048;
+
+	private final List<BufferedImage> pages = new ArrayList<BufferedImage>();
+	private final EnumMap<CharacterState, List<Region>> regions = new EnumMap<CharacterState, List<Region>>(CharacterState.class);
+	private final EnumMap<CharacterState, List<BufferedImage>> frames = new EnumMap<CharacterState, List<BufferedImage>>(CharacterState.class);
+
+	/**
+	 * A rectangle of one page of the atlas, holding a single frame.
+	 */
+	public static class Region {
+		private final int page;
+		private final Rectangle bounds;
+
+		Region(int page, Rectangle bounds) {
+			this.page = page;
+			this.bounds = bounds;
+		}
+
+		public int getPage() {
+			return page;
+		}
+
+		public Rectangle getBounds() {
+			return new Rectangle(bounds);
+		}
+
+		public int getX() {
+			return bounds.x;
+		}
+
+		public int getY() {
+			return bounds.y;
+		}
+
+		public int getWidth() {
+			return bounds.width;
+		}
+
+		public int getHeight() {
+			return bounds.height;
+		}
+	}
+
+	/**
+	 * Constructor, using square pages of the default size.
+	 *
+	 * @param frameSets
+	 *            The frames of each animation, by state.
+	 */
+	public SpriteAtlas(Map<CharacterState, List<BufferedImage>> frameSets) {
+		this(frameSets, DEFAULT_PAGE_SIZE);
+	}
+
+	/**
+	 * Constructor. Packs the frames onto as few pages as a simple shelf
+	 * packing allows. A frame used more than once is only stored once, and a
+	 * frame larger than a page is given a page of its own.
+	 *
+	 * @param frameSets
+	 *            The frames of each animation, by state.
+	 * @param pageSize
+	 *            The width and height of each page.
+	 */
+	public SpriteAtlas(Map<CharacterState, List<BufferedImage>> frameSets, int pageSize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be positive!");
+		}
+
+		// Each distinct frame once, tallest first, so shelves waste less space.
+		IdentityHashMap<BufferedImage, Region> placed = new IdentityHashMap<BufferedImage, Region>();
+		List<BufferedImage> unique = new ArrayList<BufferedImage>();
+		for (List<BufferedImage> frameSet : frameSets.values()) {
+			for (BufferedImage frame : frameSet) {
+				if (!placed.containsKey(frame)) {
+					placed.put(frame, null);
+					unique.add(frame);
+				}
+			}
+		}
+		Collections.sort(unique, new Comparator<BufferedImage>() {
+			@Override
+			public int compare(BufferedImage a, BufferedImage b) {
+				return b.getHeight() - a.getHeight();
+			}
+		});
+
+		// Lay out shelves, recording how much of each page is used.
+		List<int[]> pageSizes = new ArrayList<int[]>();
+		int page = -1;
+		int shelfX = 0, shelfY = 0, shelfHeight = 0;
+		for (BufferedImage frame : unique) {
+			int width = frame.getWidth();
+			int height = frame.getHeight();
+			if (width > pageSize || height > pageSize) {
+				pageSizes.add(new int[] { width, height });
+				placed.put(frame, new Region(pageSizes.size() - 1, new Rectangle(0, 0, width, height)));
+				continue;
+			}
+			if (page >= 0 && shelfX + width > pageSize) {
+				// Start a new shelf
+				shelfY += shelfHeight;
+				shelfX = 0;
+				shelfHeight = 0;
+			}
+			if (page < 0 || shelfY + height > pageSize) {
+				// Start a new page
+				pageSizes.add(new int[] { 0, 0 });
+				page = pageSizes.size() - 1;
+				shelfX = 0;
+				shelfY = 0;
+				shelfHeight = 0;
+			}
+			placed.put(frame, new Region(page, new Rectangle(shelfX, shelfY, width, height)));
+			shelfX += width;
+			shelfHeight = Math.max(shelfHeight, height);
+			int[] used = pageSizes.get(page);
+			used[0] = Math.max(used[0], shelfX);
+			used[1] = Math.max(used[1], shelfY + height);
+		}
+
+		// Draw every frame onto its page, copying alpha exactly.
+		List<Graphics2D> graphics = new ArrayList<Graphics2D>();
+		for (int[] used : pageSizes) {
+			BufferedImage pageImage = new BufferedImage(Math.max(used[0], 1), Math.max(used[1], 1), BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = pageImage.createGraphics();
+			g.setComposite(AlphaComposite.Src);
+			pages.add(pageImage);
+			graphics.add(g);
+		}
+		for (BufferedImage frame : unique) {
+			Region region = placed.get(frame);
+			graphics.get(region.page).drawImage(frame, region.bounds.x, region.bounds.y, null);
+		}
+		for (Graphics2D g : graphics) {
+			g.dispose();
+		}
+
+		// Describe each animation in terms of the pages.
+		Map<Region, BufferedImage> views = new IdentityHashMap<Region, BufferedImage>();
+		for (Map.Entry<CharacterState, List<BufferedImage>> frameSet : frameSets.entrySet()) {
+			List<Region> stateRegions = new ArrayList<Region>(frameSet.getValue().size());
+			List<BufferedImage> stateFrames = new ArrayList<BufferedImage>(frameSet.getValue().size());
+			for (BufferedImage frame : frameSet.getValue()) {
+				Region region = placed.get(frame);
+				BufferedImage view = views.get(region);
+				if (view == null) {
+					Rectangle r = region.bounds;
+					view = pages.get(region.page).getSubimage(r.x, r.y, r.width, r.height);
+					views.put(region, view);
+				}
+				stateRegions.add(region);
+				stateFrames.add(view);
+			}
+			regions.put(frameSet.getKey(), Collections.unmodifiableList(stateRegions));
+			frames.put(frameSet.getKey(), Collections.unmodifiableList(stateFrames));
+		}
+	}
+
+	/**
+	 * Returns the frames of one animation as sub-images of the atlas pages.
+	 *
+	 * @param state
+	 *            The animation to look up.
+	 * @return The frames, or null if the atlas has no frames for the state.
+	 */
+	public List<BufferedImage> getFrames(CharacterState state) {
+		return frames.get(state);
+	}
+
+	/**
+	 * Returns where each frame of one animation is stored in the atlas.
+	 *
+	 * @param state
+	 *            The animation to look up.
+	 * @return The regions, or null if the atlas has no frames for the state.
+	 */
+	public List<Region> getRegions(CharacterState state) {
+		return regions.get(state);
+	}
+
+	/**
+	 * Returns a single page of the atlas.
+	 *
+	 * @param page
+	 *            The page number, as given by <code>Region.getPage()</code>.
+	 * @return The page image.
+	 */
+	public BufferedImage getPage(int page) {
+		return pages.get(page);
+	}
+
+	public int getPageCount() {
+		return pages.size();
+	}
+}
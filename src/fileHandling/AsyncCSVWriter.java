@@ -0,0 +1,300 @@
+package fileHandling;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import opencsv.CSVWriter;
+
+/**
+ * Writes rows of <code>int</code>s to a <code>CSVWriter</code> on a dedicated
+ * background thread, so the caller never waits on the disk.
+ *
+ * Rows are copied into a fixed ring of reusable slots, so handing a row over
+ * costs an array copy and no allocation. When the ring is full, the
+ * <code>OverflowPolicy</code> decides whether the caller waits or the row is
+ * dropped and counted. The writer thread flushes in batches, whenever it has
+ * caught up and the flush interval has passed.
+ */
+public class AsyncCSVWriter implements Closeable {
+
+	/**
+	 * What to do with a row when the queue is full.
+	 */
+	public enum OverflowPolicy {
+		// Wait for the writer thread to make room.
+		BLOCK,
+		// Discard the row and count it.
+		DROP;
+	}
+
+	public static final int DEFAULT_CAPACITY = 8192;
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+	// How long a blocked producer or an idle writer thread waits between checks.
+	private static final long PRODUCER_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+	private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final CSVWriter writer;
+	private final OverflowPolicy policy;
+	private final long flushIntervalNanos;
+
+	// Ring of reusable rows. head is the next row to write out, tail the next
+	// free slot; only the writer thread moves head.
+	private final int[][] slots;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean waiting = false;
+	private volatile boolean closed = false;
+	private volatile IOException failure;
+
+	private final Thread thread;
+
+	/**
+	 * Constructor, using the default capacity and flush interval.
+	 *
+	 * @param writer
+	 *            The writer to send rows to. It is closed by close().
+	 * @param policy
+	 *            What to do when the queue is full.
+	 */
+	public AsyncCSVWriter(CSVWriter writer, OverflowPolicy policy) {
+		this(writer, DEFAULT_CAPACITY, policy, DEFAULT_FLUSH_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Constructor. Starts the writer thread.
+	 *
+	 * @param writer
+	 *            The writer to send rows to. It is closed by close().
+	 * @param capacity
+	 *            The maximum number of rows waiting to be written. Rounded up
+	 *            to a power of two.
+	 * @param policy
+	 *            What to do when the queue is full.
+	 * @param flushIntervalMillis
+	 *            The minimum time between flushes of the writer.
+	 */
+	public AsyncCSVWriter(CSVWriter writer, int capacity, OverflowPolicy policy, long flushIntervalMillis) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be positive!");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.writer = writer;
+		this.policy = policy;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		this.slots = new int[size][];
+		this.mask = size - 1;
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "AsyncCSVWriter");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues a row to be written. The values are copied, so the array may be
+	 * reused as soon as this returns.
+	 *
+	 * @param entries
+	 *            The row to write.
+	 * @return false if the queue was full and the row was dropped.
+	 * @throws IllegalStateException
+	 *             If the writer has been closed, or has failed.
+	 */
+	public synchronized boolean write(int[] entries) {
+		long t = tail.get();
+		if (!reserve(t)) {
+			return false;
+		}
+		int slotIndex = (int) (t & mask);
+		int[] slot = slots[slotIndex];
+		if (slot == null || slot.length != entries.length) {
+			slot = new int[entries.length];
+			slots[slotIndex] = slot;
+		}
+		System.arraycopy(entries, 0, slot, 0, entries.length);
+		publish(t);
+		return true;
+	}
+
+	/**
+	 * Queues a row to be written.
+	 *
+	 * @param entries
+	 *            The row to write.
+	 * @return false if the queue was full and the row was dropped.
+	 * @throws IllegalStateException
+	 *             If the writer has been closed, or has failed.
+	 */
+	public synchronized boolean write(List<Integer> entries) {
+		long t = tail.get();
+		if (!reserve(t)) {
+			return false;
+		}
+		int size = entries.size();
+		int slotIndex = (int) (t & mask);
+		int[] slot = slots[slotIndex];
+		if (slot == null || slot.length != size) {
+			slot = new int[size];
+			slots[slotIndex] = slot;
+		}
+		for (int i = 0; i < size; i++) {
+			slot[i] = entries.get(i);
+		}
+		publish(t);
+		return true;
+	}
+
+	/**
+	 * Returns how many rows have been dropped because the queue was full.
+	 *
+	 * @return The number of dropped rows.
+	 */
+	public long getDroppedRows() {
+		return dropped.get();
+	}
+
+	/**
+	 * Writes out every queued row, stops the writer thread and closes the
+	 * underlying writer.
+	 *
+	 * @throws IOException
+	 *             If the writer failed at any point.
+	 */
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		// CSVWriter writes through a PrintWriter, which records errors rather
+		// than throwing them.
+		if (failure == null && writer.checkError()) {
+			failure = new IOException("Could not write csv file!");
+		}
+		try {
+			writer.close();
+		} catch (IOException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Waits for a free slot, or drops the row, depending on the policy.
+	 *
+	 * @return true if slot t may be filled.
+	 */
+	private boolean reserve(long t) {
+		if (closed) {
+			throw new IllegalStateException("Writer has been closed!");
+		}
+		if (failure != null) {
+			throw new IllegalStateException("Writer has failed!", failure);
+		}
+		while (t - head.get() >= slots.length) {
+			if (policy == OverflowPolicy.DROP) {
+				dropped.incrementAndGet();
+				return false;
+			}
+			if (!thread.isAlive()) {
+				throw new IllegalStateException("Writer has failed!", failure);
+			}
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(PRODUCER_WAIT_NANOS);
+		}
+		return true;
+	}
+
+	private void publish(long t) {
+		tail.set(t + 1);
+		if (waiting) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * The writer thread: writes rows until closed and empty, or until writing
+	 * fails. A failure is kept for close() and write() to report.
+	 */
+	private void drain() {
+		try {
+			writeRows();
+		} catch (Throwable e) {
+			failure = (e instanceof IOException) ? (IOException) e : new IOException("Writer thread failed", e);
+		}
+	}
+
+	/**
+	 * Writes rows as they arrive, flushing once it has caught up.
+	 */
+	private void writeRows() throws IOException {
+		long lastFlush = System.nanoTime();
+		boolean dirty = false;
+		while (true) {
+			long h = head.get();
+			long t = tail.get();
+			if (h < t) {
+				for (; h < t; h++) {
+					writer.writeNext(slots[(int) (h & mask)]);
+					head.set(h + 1);
+				}
+				dirty = true;
+				continue;
+			}
+
+			// Caught up
+			long now = System.nanoTime();
+			if (dirty && (closed || now - lastFlush >= flushIntervalNanos)) {
+				writer.flush();
+				if (writer.checkError()) {
+					throw new IOException("Could not write csv file!");
+				}
+				lastFlush = now;
+				dirty = false;
+			}
+			if (closed && head.get() == tail.get()) {
+				return;
+			}
+
+			long wait = dirty ? Math.min(IDLE_WAIT_NANOS, flushIntervalNanos - (now - lastFlush)) : IDLE_WAIT_NANOS;
+			waiting = true;
+			if (tail.get() == h && !closed) {
+				LockSupport.parkNanos(Math.max(wait, 1));
+			}
+			waiting = false;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package fileHandling;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import maths.QuantileSketch;
+import maths.StatsAccumulator;
+import opencsv.CSVReader;
+import opencsv.CSVTokenizer;
+import opencsv.ParallelCSVReader;
+
+/**
+ * Statistics of each column of a csv file of numbers, gathered one row at a
+ * time so the file is never held in memory. Each column keeps a
+ * <code>StatsAccumulator</code> and, optionally, a <code>QuantileSketch</code>
+ * for medians and percentiles.
+ *
+ * Rows may differ in width; a column's statistics cover only the rows that
+ * reach it.
+ */
+public class CSVColumnStats {
+	private final boolean sketches;
+	private StatsAccumulator[] stats = new StatsAccumulator[0];
+	private QuantileSketch[] quantiles = new QuantileSketch[0];
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sketches
+	 *            Whether to keep a quantile sketch for each column.
+	 */
+	public CSVColumnStats(boolean sketches) {
+		this.sketches = sketches;
+	}
+
+	/**
+	 * Reads every row of a reader, then closes it.
+	 *
+	 * @param reader
+	 *            The reader to read from.
+	 * @param sketches
+	 *            Whether to keep a quantile sketch for each column.
+	 * @return The statistics of the rows read.
+	 * @throws IOException
+	 *             If the reader fails.
+	 */
+	public static CSVColumnStats read(CSVReader reader, boolean sketches) throws IOException {
+		CSVColumnStats columns = new CSVColumnStats(sketches);
+		try {
+			String[] row;
+			while ((row = reader.readNext()) != null) {
+				columns.addRow(row);
+			}
+		} finally {
+			reader.close();
+		}
+		return columns;
+	}
+
+	/**
+	 * Reads every record of a tokenizer, parsing each cell straight from its
+	 * buffer, then closes it.
+	 *
+	 * @param tokenizer
+	 *            The tokenizer to read from.
+	 * @param sketches
+	 *            Whether to keep a quantile sketch for each column.
+	 * @return The statistics of the records read.
+	 * @throws IOException
+	 *             If the tokenizer fails.
+	 */
+	public static CSVColumnStats read(CSVTokenizer tokenizer, boolean sketches) throws IOException {
+		CSVColumnStats columns = new CSVColumnStats(sketches);
+		try {
+			while (tokenizer.nextRecord()) {
+				int width = tokenizer.getFieldCount();
+				columns.ensureColumns(width);
+				for (int i = 0; i < width; i++) {
+					columns.add(i, tokenizer.getFieldAsDouble(i));
+				}
+			}
+		} finally {
+			tokenizer.close();
+		}
+		return columns;
+	}
+
+	/**
+	 * Reads a file in chunks, gathering each chunk's statistics in parallel
+	 * and merging them.
+	 *
+	 * @param reader
+	 *            The file to read.
+	 * @param executor
+	 *            The executor to read chunks on.
+	 * @param sketches
+	 *            Whether to keep a quantile sketch for each column.
+	 * @return The statistics of the whole file.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public static CSVColumnStats read(final ParallelCSVReader reader, ExecutorService executor, final boolean sketches) throws IOException {
+		int chunks = reader.getChunkCount();
+		List<Future<CSVColumnStats>> parts = new ArrayList<Future<CSVColumnStats>>(chunks);
+		for (int i = 0; i < chunks; i++) {
+			final int chunk = i;
+			parts.add(executor.submit(new Callable<CSVColumnStats>() {
+				@Override
+				public CSVColumnStats call() throws IOException {
+					return read(reader.openChunk(chunk), sketches);
+				}
+			}));
+		}
+
+		CSVColumnStats columns = new CSVColumnStats(sketches);
+		try {
+			for (Future<CSVColumnStats> part : parts) {
+				columns.merge(part.get());
+			}
+		} catch (InterruptedException e) {
+			for (Future<CSVColumnStats> part : parts) {
+				part.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading", e);
+		} catch (ExecutionException e) {
+			for (Future<CSVColumnStats> part : parts) {
+				part.cancel(true);
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+		return columns;
+	}
+
+	/**
+	 * Adds one row of numbers.
+	 *
+	 * @param row
+	 *            The row's cells.
+	 * @throws NumberFormatException
+	 *             If a cell is not a number.
+	 */
+	public void addRow(String[] row) {
+		ensureColumns(row.length);
+		for (int i = 0; i < row.length; i++) {
+			add(i, Double.parseDouble(row[i]));
+		}
+	}
+
+	/**
+	 * Adds the statistics gathered by another instance, e.g. over another part
+	 * of the same file.
+	 *
+	 * @param other
+	 *            The statistics to combine with these. Must keep sketches if
+	 *            these do.
+	 */
+	public void merge(CSVColumnStats other) {
+		if (sketches && !other.sketches) {
+			throw new IllegalArgumentException("Cannot merge statistics without quantile sketches!");
+		}
+		ensureColumns(other.stats.length);
+		for (int i = 0; i < other.stats.length; i++) {
+			stats[i].merge(other.stats[i]);
+			if (sketches) {
+				quantiles[i].merge(other.quantiles[i]);
+			}
+		}
+	}
+
+	public int getColumnCount() {
+		return stats.length;
+	}
+
+	/**
+	 * Returns a column's count, mean, standard deviation, minimum and maximum.
+	 *
+	 * @param column
+	 *            The column, counting from 0.
+	 * @return The column's statistics.
+	 */
+	public StatsAccumulator getStats(int column) {
+		return stats[column];
+	}
+
+	/**
+	 * Returns a column's quantile sketch, for medians and percentiles.
+	 *
+	 * @param column
+	 *            The column, counting from 0.
+	 * @return The column's sketch, or null if sketches are not being kept.
+	 */
+	public QuantileSketch getSketch(int column) {
+		return sketches ? quantiles[column] : null;
+	}
+
+	private void add(int column, double value) {
+		stats[column].add(value);
+		if (sketches) {
+			quantiles[column].add(value);
+		}
+	}
+
+	private void ensureColumns(int width) {
+		int columns = stats.length;
+		if (width <= columns) {
+			return;
+		}
+		stats = Arrays.copyOf(stats, width);
+		for (int i = columns; i < width; i++) {
+			stats[i] = new StatsAccumulator();
+		}
+		if (sketches) {
+			quantiles = Arrays.copyOf(quantiles, width);
+			for (int i = columns; i < width; i++) {
+				quantiles[i] = new QuantileSketch();
+			}
+		}
+	}
+}
@@ -2,14 +2,19 @@ package fileHandling;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import maths.DoubleTable;
+import maths.IntTable;
 import opencsv.CSVReader;
+import opencsv.CSVTokenizer;
 import opencsv.CSVWriter;
+import opencsv.MappedFileReader;
+import opencsv.ParallelCSVReader;
 
 
 
@@ -25,33 +30,23 @@ import opencsv.CSVWriter;
  */
 public class CSVHandler {
 	CSVWriter writer;
+	private AsyncCSVWriter asyncWriter;
+	private long droppedRows = 0;
+	// Reused by writeCSVLine(List) to avoid converting values to strings.
+	private int[] lineBuffer = new int[0];
 	private String csvFolder = "output";
 	private String fileName = "metrics";
 
 
 	public List<List<Integer>> readCSVinteger(String fileName) {
-		CSVReader reader;
-		// The strings pulled from file
-		List<String[]> storedEntries = new ArrayList<String[]>();
-		// Each string converted to int.
-		List<List<Integer>> convertedEntries = new ArrayList<List<Integer>>();
+		// Each row parsed straight to int.
+		List<int[]> storedEntries = readIntRows(fileName);
+		List<List<Integer>> convertedEntries = new ArrayList<List<Integer>>(storedEntries.size());
 
-		// Read the entire file into a List.
-		try {
-			reader = new CSVReader(new FileReader(getCSVFolder() + File.separator + fileName + ".csv"));
-			storedEntries = reader.readAll();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
-		// The current list contains strings, so we convert them.
-		int size = storedEntries.get(0).length;
-		for (String[] row : storedEntries) {
-			List<Integer> convertedRow = new ArrayList<Integer>();
-			for (int i = 0; i < size; i++) {
-				convertedRow.add(Integer.parseInt(row[i]));
+		for (int[] row : storedEntries) {
+			List<Integer> convertedRow = new ArrayList<Integer>(row.length);
+			for (int value : row) {
+				convertedRow.add(value);
 			}
 			convertedEntries.add(convertedRow);
 		}
@@ -67,8 +62,12 @@ public class CSVHandler {
 
 		// Read the entire file into a List.
 		try {
-			reader = new CSVReader(new FileReader(getCSVFolder() + File.separator + fileName + ".csv"));
-			storedEntries = reader.readAll();
+			reader = new CSVReader(new File(getCSVFolder() + File.separator + fileName + ".csv"));
+			try {
+				storedEntries = reader.readAll();
+			} finally {
+				reader.close();
+			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
@@ -90,45 +89,190 @@ public class CSVHandler {
 
 
 	/**
-	 * Reads the currently selected file and returns it. Will probably fail if
-	 * entries are not <code>int</code>s.
+	 * Reads a file of integers into a column-based table of primitives, so no
+	 * cell is boxed. Rows are cut to the width of the first row.
+	 * 
+	 * @param fileName
+	 *            The file to read, without the .csv extension.
+	 * @return The file as an <code>IntTable</code>, or null if it could not
+	 *         be read or was empty.
+	 */
+	public IntTable readCSVintTable(String fileName) {
+		CSVTokenizer tokenizer;
+		IntTable table = null;
+
+		try {
+			tokenizer = new CSVTokenizer(new MappedFileReader(new File(getCSVFolder() + File.separator + fileName + ".csv")));
+			try {
+				int[] convertedRow = null;
+				while (tokenizer.nextRecord()) {
+					if (table == null) {
+						table = new IntTable(tokenizer.getFieldCount());
+						convertedRow = new int[table.getColumnCount()];
+					}
+					for (int i = 0; i < convertedRow.length; i++) {
+						convertedRow[i] = tokenizer.getFieldAsInt(i);
+					}
+					table.addRow(convertedRow);
+				}
+			} finally {
+				tokenizer.close();
+			}
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return table;
+	}
+
+	/**
+	 * Reads a file of numbers into a column-based table of primitives, so no
+	 * cell is boxed. Rows are cut to the width of the first row.
+	 * 
+	 * @param fileName
+	 *            The file to read, without the .csv extension.
+	 * @return The file as a <code>DoubleTable</code>, or null if it could not
+	 *         be read or was empty.
+	 */
+	public DoubleTable readCSVdoubleTable(String fileName) {
+		CSVTokenizer tokenizer;
+		DoubleTable table = null;
+
+		try {
+			tokenizer = new CSVTokenizer(new MappedFileReader(new File(getCSVFolder() + File.separator + fileName + ".csv")));
+			try {
+				double[] convertedRow = null;
+				while (tokenizer.nextRecord()) {
+					if (table == null) {
+						table = new DoubleTable(tokenizer.getFieldCount());
+						convertedRow = new double[table.getColumnCount()];
+					}
+					for (int i = 0; i < convertedRow.length; i++) {
+						convertedRow[i] = tokenizer.getFieldAsDouble(i);
+					}
+					table.addRow(convertedRow);
+				}
+			} finally {
+				tokenizer.close();
+			}
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return table;
+	}
+
+	/**
+	 * Finds the count, mean, standard deviation, minimum and maximum of each
+	 * column of a file of numbers, reading it a row at a time.
+	 * 
+	 * @param fileName
+	 *            The file to read, without the .csv extension.
+	 * @param sketches
+	 *            Whether to also keep a quantile sketch of each column.
+	 * @return The statistics of each column, or null if the file could not be
+	 *         read.
+	 */
+	public CSVColumnStats readCSVstats(String fileName, boolean sketches) {
+		CSVColumnStats stats = null;
+
+		try {
+			stats = CSVColumnStats.read(new CSVTokenizer(new MappedFileReader(new File(getCSVFolder() + File.separator + fileName + ".csv"))), sketches);
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return stats;
+	}
+
+	/**
+	 * Finds the statistics of each column of a file of numbers, reading
+	 * chunks of the file in parallel.
+	 * 
+	 * @param fileName
+	 *            The file to read, without the .csv extension.
+	 * @param sketches
+	 *            Whether to also keep a quantile sketch of each column.
+	 * @param executor
+	 *            The executor to read chunks on.
+	 * @return The statistics of each column, or null if the file could not be
+	 *         read.
+	 */
+	public CSVColumnStats readCSVstats(String fileName, boolean sketches, ExecutorService executor) {
+		CSVColumnStats stats = null;
+
+		try {
+			stats = CSVColumnStats.read(new ParallelCSVReader(new File(getCSVFolder() + File.separator + fileName + ".csv")), executor, sketches);
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return stats;
+	}
+
+	/**
+	 * Reads the currently selected file and returns it. Entries must be
+	 * <code>int</code>s, otherwise a <code>NumberFormatException</code> naming
+	 * the line and column is thrown.
 	 * 
 	 * @return The requested file in the form of a <code>List</code> of arrays
 	 *         of <code>int</code>s. Each array represents a single row.
 	 */
 	public List<int[]> readCSVint() {
-		CSVReader reader;
-		// The strings pulled from file
-		List<String[]> storedEntries = new ArrayList<String[]>();
-		// Each string converted to int.
+		return readIntRows(getFileName());
+	}
+
+	/**
+	 * Reads a file of integers straight into arrays. Each cell is parsed from
+	 * the tokenizer's character buffer, so no <code>String</code> is created
+	 * per cell or per row. Rows are cut to the width of the first row.
+	 * 
+	 * @param fileName
+	 *            The file to read, without the .csv extension.
+	 * @return Each row of the file as an array of <code>int</code>s.
+	 */
+	private List<int[]> readIntRows(String fileName) {
+		CSVTokenizer tokenizer;
 		List<int[]> convertedEntries = new ArrayList<int[]>();
 
-		// Read the entire file into a List.
 		try {
-			reader = new CSVReader(new FileReader(getCSVFolder() + File.separator + getFileName() + ".csv"));
-			storedEntries = reader.readAll();
+			tokenizer = new CSVTokenizer(new MappedFileReader(new File(getCSVFolder() + File.separator + fileName + ".csv")));
+			try {
+				int size = -1;
+				while (tokenizer.nextRecord()) {
+					if (size < 0) {
+						size = tokenizer.getFieldCount();
+					}
+					int[] convertedRow = new int[size];
+					for (int i = 0; i < size; i++) {
+						convertedRow[i] = tokenizer.getFieldAsInt(i);
+					}
+					convertedEntries.add(convertedRow);
+				}
+			} finally {
+				tokenizer.close();
+			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 
-		// The current list contains strings, so we convert them.
-		int size = storedEntries.get(0).length;
-		for (String[] row : storedEntries) {
-			int[] convertedRow = new int[size];
-			for (int i = 0; i < size; i++) {
-				convertedRow[i] = Integer.parseInt(row[i]);
-			}
-			convertedEntries.add(convertedRow);
-		}
-
 		return convertedEntries;
 	}
 
 
 	/**
-	 * Reads the currently selected file and returns it.
+	 * Reads the currently selected file and returns it. The file is read as
+	 * UTF-8.
 	 * 
 	 * @return The requested file in the form of a List of arrays of strings.
 	 *         Each array represents a single row.
@@ -137,8 +281,12 @@ public class CSVHandler {
 		CSVReader reader;
 		List<String[]> myEntries = new ArrayList<String[]>();
 		try {
-			reader = new CSVReader(new FileReader(getCSVFolder() + File.separator + getFileName() + ".csv"));
-			myEntries = reader.readAll();
+			reader = new CSVReader(new File(getCSVFolder() + File.separator + getFileName() + ".csv"));
+			try {
+				myEntries = reader.readAll();
+			} finally {
+				reader.close();
+			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
@@ -163,13 +311,39 @@ public class CSVHandler {
 	}
 
 	/**
-	 * Closes the current writer.
+	 * Opens a <code>CSVWriter</code> to write to, as openCSVStream() does, but
+	 * hands rows to a background thread so writeCSVLine() never waits on the
+	 * disk.
+	 * 
+	 * @param queueSize
+	 *            The maximum number of rows waiting to be written.
+	 * @param policy
+	 *            Whether to wait or drop rows when the queue is full. Dropped
+	 *            rows are counted by getDroppedRows().
+	 */
+	public void openCSVStream(int queueSize, AsyncCSVWriter.OverflowPolicy policy) {
+		openCSVStream();
+		if (writer != null) {
+			asyncWriter = new AsyncCSVWriter(writer, queueSize, policy, AsyncCSVWriter.DEFAULT_FLUSH_INTERVAL_MILLIS);
+		}
+	}
+
+	/**
+	 * Closes the current writer. In async mode, every queued row is written
+	 * before this returns.
 	 */
 	public void closeCSVStream() {
 		try {
-			writer.close();
+			if (asyncWriter != null) {
+				droppedRows = asyncWriter.getDroppedRows();
+				asyncWriter.close();
+			} else {
+				writer.close();
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
+		} finally {
+			asyncWriter = null;
 		}
 	}
 
@@ -180,21 +354,36 @@ public class CSVHandler {
 	 *            The array of integers to write to file.
 	 */
 	public void writeCSVLine(int[] entries) {
-		int size = entries.length;
-		String[] convertedEntries = new String[size];
-		for (int i = 0; i < size; i++) {
-			convertedEntries[i] = Integer.toString(entries[i]);
+		if (asyncWriter != null) {
+			asyncWriter.write(entries);
+		} else {
+			writer.writeNext(entries);
 		}
-		writer.writeNext(convertedEntries);
 	}
 
 	public void writeCSVLine(List<Integer> entries) {
+		if (asyncWriter != null) {
+			asyncWriter.write(entries);
+			return;
+		}
 		int size = entries.size();
-		String[] convertedEntries = new String[size];
+		if (lineBuffer.length != size) {
+			lineBuffer = new int[size];
+		}
 		for (int i = 0; i < size; i++) {
-			convertedEntries[i] = Integer.toString(entries.get(i));
+			lineBuffer[i] = entries.get(i);
 		}
-		writer.writeNext(convertedEntries);
+		writer.writeNext(lineBuffer);
+	}
+
+	/**
+	 * Returns how many rows the async writer has dropped because its queue
+	 * was full, for the open stream or the last one closed.
+	 * 
+	 * @return The number of dropped rows.
+	 */
+	public long getDroppedRows() {
+		return (asyncWriter != null) ? asyncWriter.getDroppedRows() : droppedRows;
 	}
 
 	public String getCSVFolder() {
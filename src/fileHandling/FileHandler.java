@@ -2,11 +2,19 @@ package fileHandling;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 
@@ -31,6 +39,12 @@ public class FileHandler {
 	private String outputFolder = "output";
 	private String fileFormat = "png";
 	private int totalImages = 0;
+	private ExecutorService loadingExecutor = null;
+	// The pool made by setLoadingThreads(), if that is the one in use.
+	private ExecutorService ownedExecutor = null;
+	private int ownedThreads = 0;
+	private ImageCache imageCache = null;
+	private FolderIndex inputIndex = null;
 
 	public FileHandler() {
 	}
@@ -44,20 +58,8 @@ public class FileHandler {
 	 * @return The total number of files matching the input string.
 	 */
 	public int getTotalImagesMatching(final String nameFilter) {
-		File inFolder = new File(inputFolder);
-		FilenameFilter filter = null;
-
-		// Returns all files in the folder if (nameFilter == null)
-		if (nameFilter != null) {
-			filter = new FilenameFilter() {
-				@Override
-				public boolean accept(File folder, String name) {
-					return name.startsWith(nameFilter);
-				}
-			};
-		}
-
-		totalImages = inFolder.list(filter).length;
+		// Counts all files in the folder if (nameFilter == null)
+		totalImages = getInputIndex().count(nameFilter);
 		return totalImages;
 	}
 
@@ -74,20 +76,8 @@ public class FileHandler {
 	 * @return A <code>List</code> of file names as <code>String</code>s.
 	 */
 	public List<String> getAllImageNamesMatching(final String nameFilter) {
-		File inFolder = new File(inputFolder);
-		FilenameFilter filter = null;
-
 		// Returns all files in the folder if (nameFilter == null)
-		if (nameFilter != null) {
-			filter = new FilenameFilter() {
-				@Override
-				public boolean accept(File folder, String name) {
-					return name.startsWith(nameFilter);
-				}
-			};
-		}
-
-		return Arrays.asList(inFolder.list(filter));
+		return new ArrayList<String>(getInputIndex().list(nameFilter));
 	}
 
 	/**
@@ -101,26 +91,41 @@ public class FileHandler {
 	 *            e.g. 1 = load every image; 2 = load every second image; 10 =
 	 *            load every 10th image.
 	 * @return All the files that matched the name, not including files skipped.
+	 *         Any image that could not be loaded is logged and left as null.
 	 */
 	public List<BufferedImage> loadAllImagesMatching(final String nameFilter, int getEveryXthItem) {
-		File inFolder = new File(inputFolder);
-		int counter = 0;
-		FilenameFilter filter = new FilenameFilter() {
-			@Override
-			public boolean accept(File folder, String name) {
-				return name.startsWith(nameFilter);
-			}
-		};
+		try {
+			return readAllImagesMatching(nameFilter, getEveryXthItem);
+		} catch (ImageLoadException e) {
+			return logFailures(e);
+		}
+	}
 
-		List<BufferedImage> images = new ArrayList<BufferedImage>();
+	/**
+	 * Loads all images from the input folder that match the name filter, as
+	 * loadAllImagesMatching() does, but reports images that could not be
+	 * loaded rather than leaving them as null.
+	 * 
+	 * @param nameFilter
+	 *            The beginning of the name to find.
+	 * @param getEveryXthItem
+	 *            e.g. 1 = load every image; 2 = load every second image; 10 =
+	 *            load every 10th image.
+	 * @return All the files that matched the name, not including files skipped.
+	 * @throws ImageLoadException
+	 *             If any image could not be loaded, after trying all of them.
+	 */
+	public List<BufferedImage> readAllImagesMatching(final String nameFilter, int getEveryXthItem) throws ImageLoadException {
+		int counter = 0;
+		List<String> selectedNames = new ArrayList<String>();
 
-		for (String eachName : inFolder.list(filter)) {
+		for (String eachName : getInputIndex().list(nameFilter)) {
 			if (counter % getEveryXthItem == 0) {
-				images.add(loadImage(eachName));
+				selectedNames.add(eachName);
 			}
 			counter++;
 		}
-		return images;
+		return loadImages(selectedNames);
 	}
 
 	/**
@@ -138,10 +143,39 @@ public class FileHandler {
 	 *            exception on negative number. If retrieving more than the
 	 *            number of images that exists, will instead get all images.
 	 * @return All images matching the name filter, up to the limit, not
-	 *         including skipped files.
+	 *         including skipped files. Any image that could not be loaded is
+	 *         logged and left as null.
 	 * @throws Exception
 	 */
 	public List<BufferedImage> loadMatchingImages(final String nameFilter, int every, int limit) throws Exception {
+		try {
+			return readMatchingImages(nameFilter, every, limit);
+		} catch (ImageLoadException e) {
+			return logFailures(e);
+		}
+	}
+
+	/**
+	 * Loads images that match the name filter, as loadMatchingImages() does,
+	 * but reports images that could not be loaded rather than leaving them as
+	 * null.
+	 * 
+	 * @param nameFilter
+	 *            The beginning of the name to find.
+	 * @param every
+	 *            e.g. 1 = load every image; 2 = every second image; 10 = every
+	 *            10th image. Will throw exception on negative number.
+	 * @param limit
+	 *            How many images to return. 0 = return all images. Will throw
+	 *            exception on negative number. If retrieving more than the
+	 *            number of images that exists, will instead get all images.
+	 * @return All images matching the name filter, up to the limit, not
+	 *         including skipped files.
+	 * @throws ImageLoadException
+	 *             If any image could not be loaded, after trying all of them.
+	 * @throws Exception
+	 */
+	public List<BufferedImage> readMatchingImages(final String nameFilter, int every, int limit) throws Exception {
 		// Parameter Check
 		if (limit < 0) {
 			throw new Exception("Cannot get a negative number of images!");
@@ -150,41 +184,150 @@ public class FileHandler {
 			throw new Exception("Cannot get more images than exist!");
 		}
 
-		// Image IO
-		File inFolder = new File(inputFolder);
-		FilenameFilter filter = new FilenameFilter() {
-			// Our custom name filter
-			@Override
-			public boolean accept(File folder, String name) {
-				return name.startsWith(nameFilter);
-			}
-		};
-
-		// Image and Image Name storage
-		String[] imageNames = inFolder.list(filter);
-		List<BufferedImage> images = new ArrayList<BufferedImage>();
+		// Image Name storage
+		List<String> imageNames = getInputIndex().list(nameFilter);
+		List<String> selectedNames = new ArrayList<String>();
 
 		// 0 = Get all images, also can't get more images than exist
-		if ((limit == 0) || (limit > imageNames.length)) {
-			limit = imageNames.length;
+		if ((limit == 0) || (limit > imageNames.size())) {
+			limit = imageNames.size();
 		}
 
 		// Add the images to our list
 		for (int i = 0; i < limit; i++) {
 			if (i % every == 0) {
-				images.add(loadImage(imageNames[i]));
+				selectedNames.add(imageNames.get(i));
 			}
 		}
 
 		// Return images
-		return images;
+		return loadImages(selectedNames);
+	}
+
+	/**
+	 * Logs each image a batch could not load, as loadImage() does.
+	 * 
+	 * @return The batch, with null in place of each failed image.
+	 */
+	private static List<BufferedImage> logFailures(ImageLoadException e) {
+		for (Map.Entry<String, IOException> failure : e.getFailures().entrySet()) {
+			System.out.println("Image not found: " + failure.getKey());
+			failure.getValue().printStackTrace();
+		}
+		return new ArrayList<BufferedImage>(e.getImages());
 	}
 
+	/**
+	 * Loads a batch of images, in order. If a loading executor has been set,
+	 * the images are decoded in parallel on it.
+	 * 
+	 * @param names
+	 *            The file names to load, from the input folder.
+	 * @return The images, in the same order as the names.
+	 * @throws ImageLoadException
+	 *             If any image could not be loaded, after trying all of them.
+	 */
+	private List<BufferedImage> loadImages(List<String> names) throws ImageLoadException {
+		int size = names.size();
+		List<BufferedImage> images = new ArrayList<BufferedImage>(size);
+		Map<String, IOException> failures = new LinkedHashMap<String, IOException>();
+		List<Future<BufferedImage>> futures = null;
+
+		// Submit under the lock, so the executor cannot be shut down by
+		// setLoadingThreads() part way through. Submitted loads still finish.
+		synchronized (this) {
+			if (loadingExecutor != null) {
+				futures = new ArrayList<Future<BufferedImage>>(size);
+				for (final String name : names) {
+					futures.add(loadingExecutor.submit(new Callable<BufferedImage>() {
+						@Override
+						public BufferedImage call() throws IOException {
+							return readImage(name);
+						}
+					}));
+				}
+			}
+		}
 
+		if (futures == null) {
+			for (String name : names) {
+				try {
+					images.add(readImage(name));
+				} catch (IOException e) {
+					images.add(null);
+					failures.put(name, e);
+				}
+			}
+		} else {
+			boolean interrupted = false;
+			for (int i = 0; i < size; i++) {
+				String name = names.get(i);
+				if (interrupted) {
+					futures.get(i).cancel(true);
+					images.add(null);
+					failures.put(name, new InterruptedIOException("Interrupted before " + name + " was loaded"));
+					continue;
+				}
+				try {
+					images.add(futures.get(i).get());
+				} catch (InterruptedException e) {
+					interrupted = true;
+					futures.get(i).cancel(true);
+					images.add(null);
+					failures.put(name, new InterruptedIOException("Interrupted before " + name + " was loaded"));
+				} catch (ExecutionException e) {
+					images.add(null);
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						failures.put(name, (IOException) cause);
+					} else if (cause instanceof RuntimeException || cause instanceof Error) {
+						// Not a problem with the file, so stop loading the rest.
+						for (Future<BufferedImage> future : futures) {
+							future.cancel(true);
+						}
+						if (cause instanceof Error) {
+							throw (Error) cause;
+						}
+						throw (RuntimeException) cause;
+					} else {
+						failures.put(name, new IOException(cause));
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (!failures.isEmpty()) {
+			throw new ImageLoadException(failures, images);
+		}
+		return images;
+	}
+
+	/**
+	 * Reads an image file from the input folder into a
+	 * <code>BufferedImage</code>, reporting any failure. Uses the image cache,
+	 * if one has been set.
+	 * 
+	 * @param filename
+	 *            The name of the image to load.
+	 * @return The image in <code>BufferedImage</code> form.
+	 * @throws IOException
+	 *             If the file cannot be read or is not a supported image.
+	 */
+	public BufferedImage readImage(String filename) throws IOException {
+		File file = new File(inputFolder + File.separator + filename);
+		ImageCache cache = imageCache;
+		if (cache != null) {
+			return cache.get(file);
+		}
+		return ImageCache.read(file);
+	}
 
 	/**
 	 * Loads an image file from the input folder into a
-	 * <code>BufferedImage</code>.
+	 * <code>BufferedImage</code>. Uses the image cache, if one has been set.
 	 * 
 	 * @param filename
 	 *            The name of the image to load.
@@ -193,7 +336,7 @@ public class FileHandler {
 	public BufferedImage loadImage(String filename) {
 		BufferedImage img = null;
 		try {
-			img = ImageIO.read(new File(inputFolder + File.separator + filename));
+			img = readImage(filename);
 		} catch (IOException e) {
 			System.out.println("Image not found: " + filename);
 			e.printStackTrace();
@@ -221,6 +364,89 @@ public class FileHandler {
 		}
 	}
 
+	/**
+	 * Sets the executor used to decode images in parallel when loading more
+	 * than one image at a time. Results keep the same order either way.
+	 * 
+	 * @param loadingExecutor
+	 *            The executor to use, or null to load images one at a time on
+	 *            the calling thread.
+	 */
+	public synchronized void setLoadingExecutor(ExecutorService loadingExecutor) {
+		if (ownedExecutor != null && ownedExecutor != loadingExecutor) {
+			// Loads already submitted to the old pool still finish.
+			ownedExecutor.shutdown();
+			ownedExecutor = null;
+		}
+		this.loadingExecutor = loadingExecutor;
+	}
+
+	/**
+	 * Loads images in parallel on a fixed pool of background daemon threads.
+	 * The pool is reused while the number of threads stays the same, and shut
+	 * down when it is replaced.
+	 * 
+	 * @param threads
+	 *            The number of images to decode at once. 1 or less loads
+	 *            images one at a time on the calling thread.
+	 */
+	public synchronized void setLoadingThreads(int threads) {
+		if (threads <= 1) {
+			setLoadingExecutor(null);
+			return;
+		}
+		if (ownedExecutor != null && ownedThreads == threads) {
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "FileHandler-loader-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		setLoadingExecutor(pool);
+		ownedExecutor = pool;
+		ownedThreads = threads;
+	}
+
+	/**
+	 * Sets a cache for loaded images, so that loading the same unchanged file
+	 * again does not decode it again. Cached images are shared, so must not be
+	 * modified by the caller.
+	 * 
+	 * @param imageCache
+	 *            The cache to use, or null to always read from disk.
+	 */
+	public void setImageCache(ImageCache imageCache) {
+		this.imageCache = imageCache;
+	}
+
+	/**
+	 * Returns the current image cache, e.g. to check its hit rate.
+	 * 
+	 * @return The image cache, or null if images are not cached.
+	 */
+	public ImageCache getImageCache() {
+		return imageCache;
+	}
+
+	/**
+	 * Returns the sorted index of the input folder used to find images by
+	 * name, creating it on first use.
+	 * 
+	 * @return The input folder's index.
+	 */
+	public synchronized FolderIndex getInputIndex() {
+		if (inputIndex == null) {
+			inputIndex = new FolderIndex(new File(inputFolder));
+		}
+		return inputIndex;
+	}
+
 	/**
 	 * Returns the currently selected input folder.
 	 * 
@@ -247,6 +473,9 @@ public class FileHandler {
 	 */
 	public void setInputFolder(String inputFolder) {
 		this.inputFolder = inputFolder;
+		synchronized (this) {
+			inputIndex = null;
+		}
 		System.out.println("Input folder changed to: " + inputFolder);
 	}
 
@@ -0,0 +1,153 @@
+package fileHandling;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sorted listing of a folder, so that the names starting with a prefix can
+ * be found, or counted, by binary search rather than by listing the folder
+ * again.
+ *
+ * The folder is listed again only when its modification time changes, which
+ * happens whenever a file is added, removed or renamed. Because a file system
+ * may record modification times only to the second, a listing taken soon
+ * after the folder last changed is not trusted, and is refreshed on the next
+ * query.
+ */
+public class FolderIndex {
+	// Modification times may only be accurate to this many milliseconds.
+	private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+	private final File folder;
+	private String[] names = null;
+	private long listedModified;
+	private boolean stable = false;
+	private long listings = 0;
+
+	/**
+	 * Constructor. The folder is first listed when it is first queried.
+	 *
+	 * @param folder
+	 *            The folder to index.
+	 */
+	public FolderIndex(File folder) {
+		this.folder = folder;
+	}
+
+	/**
+	 * Returns the names in the folder starting with a prefix.
+	 *
+	 * @param prefix
+	 *            The beginning of the names to find, or null for every name.
+	 * @return The matching names, in sorted order. The list does not change if
+	 *         the folder does.
+	 */
+	public synchronized List<String> list(String prefix) {
+		refresh();
+		List<String> all = Collections.unmodifiableList(Arrays.asList(names));
+		if (prefix == null) {
+			return all;
+		}
+		return all.subList(first(prefix), end(prefix));
+	}
+
+	/**
+	 * Counts the names in the folder starting with a prefix, in O(log n).
+	 *
+	 * @param prefix
+	 *            The beginning of the names to count, or null for every name.
+	 * @return The number of matching names.
+	 */
+	public synchronized int count(String prefix) {
+		refresh();
+		if (prefix == null) {
+			return names.length;
+		}
+		return end(prefix) - first(prefix);
+	}
+
+	/**
+	 * Forces the folder to be listed again on the next query.
+	 */
+	public synchronized void invalidate() {
+		names = null;
+	}
+
+	/**
+	 * Returns how many times the folder has been listed, e.g. to check the
+	 * index is saving work.
+	 *
+	 * @return The number of listings.
+	 */
+	public synchronized long getListingCount() {
+		return listings;
+	}
+
+	/**
+	 * Returns the folder being indexed.
+	 *
+	 * @return The folder.
+	 */
+	public File getFolder() {
+		return folder;
+	}
+
+	/**
+	 * Lists the folder again if it has changed, or if the last listing might
+	 * have missed a change.
+	 */
+	private void refresh() {
+		long modified = folder.lastModified();
+		if (names != null && stable && modified == listedModified) {
+			return;
+		}
+		long listedAt = System.currentTimeMillis();
+		String[] listed = folder.list();
+		if (listed == null) {
+			listed = new String[0];
+		}
+		Arrays.sort(listed);
+		names = listed;
+		listedModified = modified;
+		stable = (listedAt - modified) > TIMESTAMP_GRANULARITY_MILLIS;
+		listings++;
+	}
+
+	/**
+	 * Returns the index of the first name not before the prefix.
+	 */
+	private int first(String prefix) {
+		int low = 0;
+		int high = names.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (names[middle].compareTo(prefix) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the index of the first name after every name starting with the
+	 * prefix.
+	 */
+	private int end(String prefix) {
+		int low = 0;
+		int high = names.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			String name = names[middle];
+			if (name.compareTo(prefix) < 0 || name.startsWith(prefix)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
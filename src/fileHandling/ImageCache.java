@@ -0,0 +1,225 @@
+package fileHandling;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A memory-bounded cache of decoded images, evicting the least recently used
+ * image first. Size is measured from each image's raster data.
+ *
+ * Threads asking for the same file at the same time share a single decode. An
+ * entry is reloaded when its file's modification time changes.
+ *
+ * Cached images are shared between callers, so they must not be modified.
+ */
+public class ImageCache {
+	private final long maxBytes;
+	private long currentBytes = 0;
+
+	// Access-ordered, so iteration starts at the least recently used image.
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	// Decodes in progress, shared by every thread asking for the same file.
+	private final Map<String, FutureTask<Entry>> loading = new HashMap<String, FutureTask<Entry>>();
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxBytes
+	 *            The most raster memory, in bytes, to keep cached.
+	 */
+	public ImageCache(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Cannot have a negative cache size!");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the image stored in a file, decoding it only if it is not
+	 * already cached or the file has changed since.
+	 *
+	 * @param file
+	 *            The image file to load.
+	 * @return The decoded image.
+	 * @throws IOException
+	 *             If the file cannot be read or is not a supported image.
+	 */
+	public BufferedImage get(final File file) throws IOException {
+		final String key = file.getPath();
+		final long modified = file.lastModified();
+		FutureTask<Entry> task;
+		boolean owner = false;
+
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (entry.modified == modified) {
+					hits++;
+					return entry.image;
+				}
+				remove(key);
+				invalidations++;
+			}
+			task = loading.get(key);
+			if (task == null) {
+				task = new FutureTask<Entry>(new Callable<Entry>() {
+					@Override
+					public Entry call() throws IOException {
+						return new Entry(read(file), modified);
+					}
+				});
+				loading.put(key, task);
+				owner = true;
+				misses++;
+			} else {
+				// Served by another thread's decode
+				hits++;
+			}
+		}
+
+		Entry entry = null;
+		try {
+			if (owner) {
+				task.run();
+			}
+			entry = task.get();
+			return entry.image;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while loading " + key);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			if (owner) {
+				synchronized (this) {
+					loading.remove(key);
+					if (entry != null && entry.bytes <= maxBytes) {
+						remove(key);
+						entries.put(key, entry);
+						currentBytes += entry.bytes;
+						evict();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes a file's image from the cache, if present.
+	 *
+	 * @param file
+	 *            The image file to forget.
+	 */
+	public synchronized void invalidate(File file) {
+		if (remove(file.getPath())) {
+			invalidations++;
+		}
+	}
+
+	/**
+	 * Removes every image from the cache. Counters are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		currentBytes = 0;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	public synchronized long getSizeInBytes() {
+		return currentBytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Reads an image file, treating an unsupported format as a failure rather
+	 * than returning <code>null</code> as <code>ImageIO.read</code> does.
+	 */
+	static BufferedImage read(File file) throws IOException {
+		BufferedImage img = ImageIO.read(file);
+		if (img == null) {
+			throw new IOException("Not a supported image: " + file.getName());
+		}
+		return img;
+	}
+
+	/**
+	 * Estimates the memory held by an image's raster data.
+	 */
+	static long sizeInBytes(BufferedImage image) {
+		DataBuffer data = image.getRaster().getDataBuffer();
+		return (long) data.getSize() * data.getNumBanks() * DataBuffer.getDataTypeSize(data.getDataType()) / 8;
+	}
+
+	private boolean remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry == null) {
+			return false;
+		}
+		currentBytes -= entry.bytes;
+		return true;
+	}
+
+	private void evict() {
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (currentBytes > maxBytes && eldest.hasNext()) {
+			currentBytes -= eldest.next().bytes;
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	private static class Entry {
+		final BufferedImage image;
+		final long modified;
+		final long bytes;
+
+		Entry(BufferedImage image, long modified) {
+			this.image = image;
+			this.modified = modified;
+			this.bytes = sizeInBytes(image);
+		}
+	}
+}
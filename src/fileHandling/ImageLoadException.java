@@ -0,0 +1,55 @@
+package fileHandling;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thrown when one or more images in a batch could not be loaded. Every other
+ * image in the batch is still loaded, and can be retrieved from the exception
+ * with <code>null</code> in place of each failed image.
+ */
+public class ImageLoadException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	private final Map<String, IOException> failures;
+	private final List<BufferedImage> images;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param failures
+	 *            The cause of each failure, keyed by file name, in load order.
+	 * @param images
+	 *            The whole batch, with <code>null</code> for each failure.
+	 */
+	public ImageLoadException(Map<String, IOException> failures, List<BufferedImage> images) {
+		super(failures.size() + " of " + images.size() + " images could not be loaded: " + failures.keySet());
+		this.failures = Collections.unmodifiableMap(failures);
+		this.images = Collections.unmodifiableList(images);
+		if (!failures.isEmpty()) {
+			initCause(failures.values().iterator().next());
+		}
+	}
+
+	/**
+	 * Returns the cause of each failure.
+	 * 
+	 * @return A <code>Map</code> from file name to the reason it failed.
+	 */
+	public Map<String, IOException> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Returns the images that did load.
+	 * 
+	 * @return The batch in load order, with <code>null</code> for each image
+	 *         that failed.
+	 */
+	public List<BufferedImage> getImages() {
+		return images;
+	}
+}
@@ -1,6 +1,7 @@
 package maths;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -10,9 +11,12 @@ import java.util.List;
  * @version 1.0
  */
 public class AverageFinder {
+	// Distinct values to make room for before growing, when finding modes.
+	private static final int MODE_INITIAL_CAPACITY = 1 << 12;
 
 	/**
-	 * Finds the median integer.
+	 * Finds the median integer in expected linear time. The list is not
+	 * changed.
 	 * 
 	 * @param numbers
 	 *            A <code>List</code> of <code>Integer</code>s.
@@ -20,18 +24,160 @@ public class AverageFinder {
 	 *         otherwise the sum of the two middle integers divided by two.
 	 */
 	public int findMedian(List<Integer> numbers) {
-		if (numbers.size() < 2) {
-			throw new IllegalArgumentException("Cannot find average(median) of less than 2 numbers!");
+		if (numbers.size() < 1) {
+			throw new IllegalArgumentException("Cannot find average(median) of an empty list of numbers!");
 		}
 		int size = numbers.size();
-		Collections.sort(numbers);
-		if (size % 2 == 1) {
+		int[] scratch = new int[size];
+		for (int i = 0; i < size; i++) {
+			scratch[i] = numbers.get(i);
+		}
+		return findMedianInPlace(scratch, size);
+	}
+
+	/**
+	 * Finds the median integer in expected linear time. The input is not
+	 * changed.
+	 * 
+	 * @param numbers
+	 *            The integers.
+	 * @return The middle number if there are an odd number of input integers,
+	 *         otherwise the sum of the two middle integers divided by two.
+	 */
+	public int findMedian(int[] numbers) {
+		return findMedianInPlace(numbers.clone(), numbers.length);
+	}
+
+	/**
+	 * Finds the median in expected linear time. The input is not changed.
+	 * 
+	 * @param numbers
+	 *            The numbers, none of which may be NaN.
+	 * @return The middle number if there are an odd number of input numbers,
+	 *         otherwise the mean of the two middle numbers.
+	 */
+	public double findMedian(double[] numbers) {
+		return findMedianInPlace(numbers.clone(), numbers.length);
+	}
+
+	/**
+	 * Finds the median of the first <code>length</code> integers of a scratch
+	 * buffer, without copying. The buffer is reordered.
+	 * 
+	 * @param scratch
+	 *            The integers, which may be rearranged.
+	 * @param length
+	 *            How many integers of the buffer to use.
+	 * @return The median, as findMedian(int[]).
+	 */
+	public int findMedianInPlace(int[] scratch, int length) {
+		if (length < 1 || length > scratch.length) {
+			throw new IllegalArgumentException("Cannot find average(median) of " + length + " numbers!");
+		}
+		int middle = length / 2;
+		int upper = Selection.select(scratch, 0, length, middle);
+		if (length % 2 == 1) {
+			// odd
+			return upper;
+		}
+		// even: everything before the middle is no larger than it
+		int lower = Selection.max(scratch, 0, middle);
+		return (int) (((long) lower + upper) / 2);
+	}
+
+	/**
+	 * Finds the median of the first <code>length</code> numbers of a scratch
+	 * buffer, without copying. The buffer is reordered.
+	 * 
+	 * @param scratch
+	 *            The numbers, which may be rearranged. None may be NaN.
+	 * @param length
+	 *            How many numbers of the buffer to use.
+	 * @return The median, as findMedian(double[]).
+	 */
+	public double findMedianInPlace(double[] scratch, int length) {
+		if (length < 1 || length > scratch.length) {
+			throw new IllegalArgumentException("Cannot find average(median) of " + length + " numbers!");
+		}
+		int middle = length / 2;
+		double upper = Selection.select(scratch, 0, length, middle);
+		if (length % 2 == 1) {
 			// odd
-			return numbers.get((size / 2) + 1);
-		} else {
-			// even
-			return ((numbers.get(size / 2) + numbers.get((size / 2) + 1)) / 2);
+			return upper;
 		}
+		// even: everything before the middle is no larger than it
+		double lower = Selection.max(scratch, 0, middle);
+		return lower + (upper - lower) / 2;
+	}
+
+	/**
+	 * Finds the k-th smallest integer in expected linear time. The input is
+	 * not changed.
+	 * 
+	 * @param numbers
+	 *            The integers.
+	 * @param k
+	 *            The position the integer would have if the input were sorted,
+	 *            counting from 0.
+	 * @return The k-th smallest integer.
+	 */
+	public int findKthSmallest(int[] numbers, int k) {
+		return findKthSmallestInPlace(numbers.clone(), numbers.length, k);
+	}
+
+	/**
+	 * Finds the k-th smallest number in expected linear time. The input is not
+	 * changed.
+	 * 
+	 * @param numbers
+	 *            The numbers, none of which may be NaN.
+	 * @param k
+	 *            The position the number would have if the input were sorted,
+	 *            counting from 0.
+	 * @return The k-th smallest number.
+	 */
+	public double findKthSmallest(double[] numbers, int k) {
+		return findKthSmallestInPlace(numbers.clone(), numbers.length, k);
+	}
+
+	/**
+	 * Finds the k-th smallest of the first <code>length</code> integers of a
+	 * scratch buffer, without copying. The buffer is reordered.
+	 * 
+	 * @param scratch
+	 *            The integers, which may be rearranged.
+	 * @param length
+	 *            How many integers of the buffer to use.
+	 * @param k
+	 *            The position the integer would have if they were sorted,
+	 *            counting from 0.
+	 * @return The k-th smallest integer.
+	 */
+	public int findKthSmallestInPlace(int[] scratch, int length, int k) {
+		if (length > scratch.length || k < 0 || k >= length) {
+			throw new IllegalArgumentException("Cannot find number " + k + " of " + length + " numbers!");
+		}
+		return Selection.select(scratch, 0, length, k);
+	}
+
+	/**
+	 * Finds the k-th smallest of the first <code>length</code> numbers of a
+	 * scratch buffer, without copying. The buffer is reordered.
+	 * 
+	 * @param scratch
+	 *            The numbers, which may be rearranged. None may be NaN.
+	 * @param length
+	 *            How many numbers of the buffer to use.
+	 * @param k
+	 *            The position the number would have if they were sorted,
+	 *            counting from 0.
+	 * @return The k-th smallest number.
+	 */
+	public double findKthSmallestInPlace(double[] scratch, int length, int k) {
+		if (length > scratch.length || k < 0 || k >= length) {
+			throw new IllegalArgumentException("Cannot find number " + k + " of " + length + " numbers!");
+		}
+		return Selection.select(scratch, 0, length, k);
 	}
 
 	public double findMeanDouble(List<Double> numbers) {
@@ -57,39 +203,172 @@ public class AverageFinder {
 		if (numbers.size() < 1) {
 			throw new IllegalArgumentException("Cannot find average(mean) of an empty list of numbers!");
 		}
-		int mean = 0;
+		long mean = 0;
 		for (int number : numbers) {
 			mean += number;
 		}
-		return mean / numbers.size();
+		return (int) (mean / numbers.size());
 	}
 
 	/**
-	 * Finds the mode integer.
+	 * Finds the mode integer, in a single pass.
 	 * 
 	 * @param numbers
 	 *            A <code>List</code> of <code>Integer</code>s.
-	 * @return The mode integer.
+	 * @return The mode integer. If several integers are equally common, the
+	 *         smallest of them.
 	 */
 	public int findMode(List<Integer> numbers) {
 		if (numbers.size() < 1) {
 			throw new IllegalArgumentException("Cannot find average(mode) of an empty list of numbers!");
 		}
-		Collections.sort(numbers);
+		IntCounter counter = new IntCounter(Math.min(numbers.size(), MODE_INITIAL_CAPACITY));
 		int currentMode = 0;
 		int currentModeCount = 0;
-		int previous = 0; // may cause a problem
+		for (int currentNumber : numbers) {
+			int frequency = counter.increment(currentNumber);
+			if (frequency > currentModeCount || (frequency == currentModeCount && currentNumber < currentMode)) {
+				currentMode = currentNumber;
+				currentModeCount = frequency;
+			}
+		}
+		return currentMode;
+	}
 
+	/**
+	 * Finds the mode integer, in a single pass.
+	 * 
+	 * @param numbers
+	 *            The integers.
+	 * @return The mode integer. If several integers are equally common, the
+	 *         smallest of them.
+	 */
+	public int findMode(int[] numbers) {
+		if (numbers.length < 1) {
+			throw new IllegalArgumentException("Cannot find average(mode) of an empty list of numbers!");
+		}
+		IntCounter counter = new IntCounter(Math.min(numbers.length, MODE_INITIAL_CAPACITY));
+		int currentMode = 0;
+		int currentModeCount = 0;
 		for (int currentNumber : numbers) {
-			if (currentNumber != previous) {
-				int frequency = Collections.frequency(numbers, currentNumber);
-				if (frequency > currentModeCount) {
-					currentMode = currentNumber;
-					currentModeCount = frequency;
-				}
-				previous = currentNumber;
+			int frequency = counter.increment(currentNumber);
+			if (frequency > currentModeCount || (frequency == currentModeCount && currentNumber < currentMode)) {
+				currentMode = currentNumber;
+				currentModeCount = frequency;
 			}
 		}
 		return currentMode;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Finds every mode of a list of integers, i.e. all the integers that are
+	 * equally the most common.
+	 * 
+	 * @param numbers
+	 *            A <code>List</code> of <code>Integer</code>s.
+	 * @return The modes, in ascending order.
+	 */
+	public List<Integer> findModes(List<Integer> numbers) {
+		if (numbers.size() < 1) {
+			throw new IllegalArgumentException("Cannot find average(mode) of an empty list of numbers!");
+		}
+		IntCounter counter = new IntCounter(Math.min(numbers.size(), MODE_INITIAL_CAPACITY));
+		for (int currentNumber : numbers) {
+			counter.increment(currentNumber);
+		}
+		int[] modes = modes(counter);
+		List<Integer> result = new ArrayList<Integer>(modes.length);
+		for (int mode : modes) {
+			result.add(mode);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds every mode of an array of integers, i.e. all the integers that are
+	 * equally the most common.
+	 * 
+	 * @param numbers
+	 *            The integers.
+	 * @return The modes, in ascending order.
+	 */
+	public int[] findModes(int[] numbers) {
+		if (numbers.length < 1) {
+			throw new IllegalArgumentException("Cannot find average(mode) of an empty list of numbers!");
+		}
+		IntCounter counter = new IntCounter(Math.min(numbers.length, MODE_INITIAL_CAPACITY));
+		for (int currentNumber : numbers) {
+			counter.increment(currentNumber);
+		}
+		return modes(counter);
+	}
+
+	/**
+	 * Collects the most frequent values of a counter, in ascending order.
+	 */
+	private int[] modes(IntCounter counter) {
+		int modeCount = 0;
+		int tied = 0;
+		for (int slot = 0; slot < counter.capacity(); slot++) {
+			int frequency = counter.countAt(slot);
+			if (frequency > modeCount) {
+				modeCount = frequency;
+				tied = 1;
+			} else if (frequency == modeCount) {
+				tied++;
+			}
+		}
+		int[] modes = new int[tied];
+		int found = 0;
+		for (int slot = 0; slot < counter.capacity(); slot++) {
+			if (counter.countAt(slot) == modeCount) {
+				modes[found++] = counter.keyAt(slot);
+			}
+		}
+		Arrays.sort(modes);
+		return modes;
+	}
+
+	/**
+	 * Finds the mean integer of one column of a table, without boxing.
+	 * 
+	 * @param table
+	 *            The table to read from.
+	 * @param column
+	 *            The column to average.
+	 * @return The mean integer, i.e. the sum of the column divided by the
+	 *         number of rows.
+	 */
+	public int findMean(IntTable table, int column) {
+		int size = table.getRowCount();
+		if (size < 1) {
+			throw new IllegalArgumentException("Cannot find average(mean) of an empty list of numbers!");
+		}
+		long mean = 0;
+		for (int row = 0; row < size; row++) {
+			mean += table.get(row, column);
+		}
+		return (int) (mean / size);
+	}
+
+	/**
+	 * Finds the mean of one column of a table, without boxing.
+	 * 
+	 * @param table
+	 *            The table to read from.
+	 * @param column
+	 *            The column to average.
+	 * @return The sum of the column divided by the number of rows.
+	 */
+	public double findMeanDouble(DoubleTable table, int column) {
+		int size = table.getRowCount();
+		if (size < 1) {
+			throw new IllegalArgumentException("Cannot find average(mean) of an empty list of numbers!");
+		}
+		double mean = 0.0d;
+		for (int row = 0; row < size; row++) {
+			mean += table.get(row, column);
+		}
+		return mean / size;
+	}
+}
@@ -0,0 +1,88 @@
+package maths;
+
+/**
+ * Counts occurrences of <code>int</code>s in an open-addressing hash table,
+ * without boxing.
+ */
+class IntCounter {
+	private int[] keys;
+	// A count of 0 marks an empty slot.
+	private int[] counts;
+	private int mask;
+	private int size = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param expected
+	 *            Roughly how many distinct values to make room for.
+	 */
+	IntCounter(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+		keys = new int[capacity];
+		counts = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Counts one more occurrence of a value.
+	 *
+	 * @return The value's count, including this one.
+	 */
+	int increment(int key) {
+		int slot = hash(key) & mask;
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				return ++counts[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		counts[slot] = 1;
+		if (++size * 2 > keys.length) {
+			grow();
+		}
+		return 1;
+	}
+
+	/**
+	 * Returns the number of slots; slots with a count of 0 are empty.
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	int keyAt(int slot) {
+		return keys[slot];
+	}
+
+	int countAt(int slot) {
+		return counts[slot];
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new int[oldKeys.length * 2];
+		counts = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldCounts[i] != 0) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (counts[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of a key, so that runs of nearby values do not cluster.
+	 */
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
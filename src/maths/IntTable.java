@@ -0,0 +1,140 @@
+package maths;
+
+/**
+ * A table of <code>int</code>s stored by column, for holding large numeric
+ * files without boxing every cell. Each column is kept as a series of
+ * fixed-size primitive blocks, so adding rows never copies existing data.
+ */
+public class IntTable {
+	// Rows per block, as a power of two so lookups are a shift and a mask.
+	private static final int BLOCK_SHIFT = 12;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private final int columnCount;
+	private int rowCount;
+	// [column][block][row within block]
+	private int[][][] blocks;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param columnCount
+	 *            The number of columns in every row.
+	 */
+	public IntTable(int columnCount) {
+		if (columnCount < 1) {
+			throw new IllegalArgumentException("A table needs at least one column!");
+		}
+		this.columnCount = columnCount;
+		this.rowCount = 0;
+		this.blocks = new int[columnCount][1][];
+	}
+
+	/**
+	 * Appends a row to the end of the table.
+	 * 
+	 * @param row
+	 *            The values to add, one per column.
+	 */
+	public void addRow(int[] row) {
+		if (row.length != columnCount) {
+			throw new IllegalArgumentException("Row has " + row.length + " values, table has " + columnCount + " columns!");
+		}
+		int block = rowCount >>> BLOCK_SHIFT;
+		int offset = rowCount & BLOCK_MASK;
+		if (offset == 0) {
+			addBlock(block);
+		}
+		for (int column = 0; column < columnCount; column++) {
+			blocks[column][block][offset] = row[column];
+		}
+		rowCount++;
+	}
+
+	/**
+	 * Returns a single value.
+	 * 
+	 * @param row
+	 *            The row to look in.
+	 * @param column
+	 *            The column to look in.
+	 * @return The value at (row, column).
+	 */
+	public int get(int row, int column) {
+		checkRow(row);
+		return blocks[column][row >>> BLOCK_SHIFT][row & BLOCK_MASK];
+	}
+
+	/**
+	 * Returns a single row as a new array.
+	 * 
+	 * @param row
+	 *            The row to return.
+	 * @return The values of the row, one per column.
+	 */
+	public int[] getRow(int row) {
+		return getRow(row, new int[columnCount]);
+	}
+
+	/**
+	 * Copies a single row into an existing array.
+	 * 
+	 * @param row
+	 *            The row to return.
+	 * @param destination
+	 *            An array of at least getColumnCount() values to fill.
+	 * @return The destination array.
+	 */
+	public int[] getRow(int row, int[] destination) {
+		checkRow(row);
+		int block = row >>> BLOCK_SHIFT;
+		int offset = row & BLOCK_MASK;
+		for (int column = 0; column < columnCount; column++) {
+			destination[column] = blocks[column][block][offset];
+		}
+		return destination;
+	}
+
+	/**
+	 * Returns a single column as a new array.
+	 * 
+	 * @param column
+	 *            The column to return.
+	 * @return The values of the column, one per row.
+	 */
+	public int[] getColumn(int column) {
+		int[] values = new int[rowCount];
+		int[][] columnBlocks = blocks[column];
+		for (int start = 0; start < rowCount; start += BLOCK_SIZE) {
+			System.arraycopy(columnBlocks[start >>> BLOCK_SHIFT], 0, values, start, Math.min(BLOCK_SIZE, rowCount - start));
+		}
+		return values;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	private void addBlock(int block) {
+		for (int column = 0; column < columnCount; column++) {
+			int[][] columnBlocks = blocks[column];
+			if (block == columnBlocks.length) {
+				int[][] grown = new int[columnBlocks.length * 2][];
+				System.arraycopy(columnBlocks, 0, grown, 0, columnBlocks.length);
+				blocks[column] = grown;
+			}
+			blocks[column][block] = new int[BLOCK_SIZE];
+		}
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= rowCount) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package maths;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the sum, mean and variance of large arrays, splitting the work across
+ * an <code>ExecutorService</code>. Arrays shorter than the threshold are
+ * reduced on the calling thread.
+ *
+ * Integers are summed exactly into a <code>long</code>. Doubles are summed
+ * with Neumaier's compensated summation, so the result does not drift on
+ * long series.
+ */
+public class ParallelReducer {
+	public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+	private final ExecutorService executor;
+	private final int threshold;
+	private final int maxPieces;
+
+	/**
+	 * Constructor, using the default threshold.
+	 *
+	 * @param executor
+	 *            The executor to reduce on, or null to always reduce on the
+	 *            calling thread.
+	 */
+	public ParallelReducer(ExecutorService executor) {
+		this(executor, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param executor
+	 *            The executor to reduce on, or null to always reduce on the
+	 *            calling thread.
+	 * @param threshold
+	 *            The smallest number of elements worth handing to another
+	 *            thread. Arrays are split into pieces no smaller than this.
+	 */
+	public ParallelReducer(ExecutorService executor, int threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("Threshold must be positive!");
+		}
+		this.executor = executor;
+		this.threshold = threshold;
+		this.maxPieces = Runtime.getRuntime().availableProcessors() * 4;
+	}
+
+	public long sum(final int[] values) {
+		long sum = 0;
+		for (long part : run(values.length, new Reduction<Long>() {
+			@Override
+			public Long reduce(int from, int to) {
+				long sum = 0;
+				for (int i = from; i < to; i++) {
+					sum += values[i];
+				}
+				return sum;
+			}
+		})) {
+			sum += part;
+		}
+		return sum;
+	}
+
+	/**
+	 * Sums an array of longs. As with <code>long</code> addition, the result
+	 * wraps around if it overflows; use mean() for the average of large values.
+	 */
+	public long sum(final long[] values) {
+		long sum = 0;
+		for (long part : run(values.length, new Reduction<Long>() {
+			@Override
+			public Long reduce(int from, int to) {
+				long sum = 0;
+				for (int i = from; i < to; i++) {
+					sum += values[i];
+				}
+				return sum;
+			}
+		})) {
+			sum += part;
+		}
+		return sum;
+	}
+
+	public double sum(final double[] values) {
+		return total(run(values.length, new Reduction<double[]>() {
+			@Override
+			public double[] reduce(int from, int to) {
+				double[] sum = new double[2];
+				for (int i = from; i < to; i++) {
+					add(sum, values[i]);
+				}
+				return sum;
+			}
+		}));
+	}
+
+	public double mean(int[] values) {
+		checkNotEmpty(values.length);
+		return (double) sum(values) / values.length;
+	}
+
+	public double mean(final long[] values) {
+		checkNotEmpty(values.length);
+		return total(run(values.length, new Reduction<double[]>() {
+			@Override
+			public double[] reduce(int from, int to) {
+				double[] sum = new double[2];
+				for (int i = from; i < to; i++) {
+					add(sum, values[i]);
+				}
+				return sum;
+			}
+		})) / values.length;
+	}
+
+	public double mean(double[] values) {
+		checkNotEmpty(values.length);
+		return sum(values) / values.length;
+	}
+
+	/**
+	 * Finds the population variance, as the compensated sum of squared
+	 * differences from the mean divided by the number of values.
+	 */
+	public double variance(final int[] values) {
+		final double mean = mean(values);
+		return total(run(values.length, new Reduction<double[]>() {
+			@Override
+			public double[] reduce(int from, int to) {
+				double[] sum = new double[2];
+				for (int i = from; i < to; i++) {
+					double difference = values[i] - mean;
+					add(sum, difference * difference);
+				}
+				return sum;
+			}
+		})) / values.length;
+	}
+
+	/**
+	 * Finds the population variance, as the compensated sum of squared
+	 * differences from the mean divided by the number of values.
+	 */
+	public double variance(final long[] values) {
+		final double mean = mean(values);
+		return total(run(values.length, new Reduction<double[]>() {
+			@Override
+			public double[] reduce(int from, int to) {
+				double[] sum = new double[2];
+				for (int i = from; i < to; i++) {
+					double difference = values[i] - mean;
+					add(sum, difference * difference);
+				}
+				return sum;
+			}
+		})) / values.length;
+	}
+
+	/**
+	 * Finds the population variance, as the compensated sum of squared
+	 * differences from the mean divided by the number of values.
+	 */
+	public double variance(final double[] values) {
+		final double mean = mean(values);
+		return total(run(values.length, new Reduction<double[]>() {
+			@Override
+			public double[] reduce(int from, int to) {
+				double[] sum = new double[2];
+				for (int i = from; i < to; i++) {
+					double difference = values[i] - mean;
+					add(sum, difference * difference);
+				}
+				return sum;
+			}
+		})) / values.length;
+	}
+
+	public double standardDeviation(int[] values) {
+		return Math.sqrt(variance(values));
+	}
+
+	public double standardDeviation(long[] values) {
+		return Math.sqrt(variance(values));
+	}
+
+	public double standardDeviation(double[] values) {
+		return Math.sqrt(variance(values));
+	}
+
+	/**
+	 * Reduces [0, length) in pieces, on the executor if it is long enough.
+	 *
+	 * @return The result of each piece, in order.
+	 */
+	private <T> List<T> run(int length, final Reduction<T> reduction) {
+		List<T> parts = new ArrayList<T>();
+		int pieces = Math.min(length / threshold, maxPieces);
+		if (executor == null || pieces < 2) {
+			parts.add(reduction.reduce(0, length));
+			return parts;
+		}
+
+		List<Callable<T>> tasks = new ArrayList<Callable<T>>(pieces);
+		for (int piece = 0; piece < pieces; piece++) {
+			final int from = (int) ((long) length * piece / pieces);
+			final int to = (int) ((long) length * (piece + 1) / pieces);
+			tasks.add(new Callable<T>() {
+				@Override
+				public T call() {
+					return reduction.reduce(from, to);
+				}
+			});
+		}
+		try {
+			for (Future<T> part : executor.invokeAll(tasks)) {
+				parts.add(part.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during reduction", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Reduction failed", e.getCause());
+		}
+		return parts;
+	}
+
+	/**
+	 * Adds a value to a compensated sum, held as {sum, compensation}.
+	 */
+	private static void add(double[] sum, double value) {
+		double s = sum[0];
+		double t = s + value;
+		if (Math.abs(s) >= Math.abs(value)) {
+			sum[1] += (s - t) + value;
+		} else {
+			sum[1] += (value - t) + s;
+		}
+		sum[0] = t;
+	}
+
+	/**
+	 * Combines compensated partial sums.
+	 */
+	private static double total(List<double[]> parts) {
+		double[] sum = new double[2];
+		for (double[] part : parts) {
+			add(sum, part[0]);
+			add(sum, part[1]);
+		}
+		return sum[0] + sum[1];
+	}
+
+	private static void checkNotEmpty(int length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("Cannot find average(mean) of an empty list of numbers!");
+		}
+	}
+
+	private interface Reduction<T> {
+		T reduce(int from, int to);
+	}
+}
@@ -0,0 +1,348 @@
+package maths;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Estimates quantiles, e.g. the median or 99th percentile, of a stream of
+ * numbers in a fixed amount of memory, using a KLL sketch.
+ *
+ * Values are kept in a stack of levels. Each value in level h stands for 2^h
+ * of the values added. When a level fills, it is sorted and every other value,
+ * starting at random from the first or second, is promoted to the level
+ * above. Higher levels hold fewer values, so the sketch keeps about 3k values
+ * however many are added.
+ *
+ * The rank of an estimated quantile is usually within about 1.7/k of the true
+ * rank; with the default k of 200, asking for the 90th percentile gives a
+ * value between roughly the 89th and 91st. Sketches with the same k can be
+ * merged, and saved with toByteArray().
+ *
+ * A sketch is not thread-safe.
+ */
+public class QuantileSketch {
+	public static final int DEFAULT_K = 200;
+
+	private static final int FORMAT_VERSION = 1;
+	private static final int MIN_LEVEL_CAPACITY = 2;
+	private static final double LEVEL_SHRINK = 2.0d / 3.0d;
+
+	private final int k;
+	private final Random random;
+
+	private long count = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	// levels[h][0, sizes[h]) holds the values of weight 2^h.
+	private double[][] levels;
+	private int[] sizes;
+	private int levelCount;
+	private int retained = 0;
+	private int maxRetained;
+
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param k
+	 *            The size of the largest level. Error shrinks and memory grows
+	 *            in proportion to k.
+	 */
+	public QuantileSketch(int k) {
+		if (k < MIN_LEVEL_CAPACITY) {
+			throw new IllegalArgumentException("Cannot have a sketch smaller than " + MIN_LEVEL_CAPACITY + "!");
+		}
+		this.k = k;
+		this.random = new Random();
+		levels = new double[4][];
+		sizes = new int[4];
+		levelCount = 0;
+		addLevel();
+	}
+
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("Cannot add NaN to a sketch!");
+		}
+		count++;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+		append(0, value);
+		while (retained >= maxRetained) {
+			compress();
+		}
+	}
+
+	/**
+	 * Adds every value seen by another sketch, as if they had been added to
+	 * this one. The other sketch is not changed.
+	 *
+	 * @param other
+	 *            A sketch with the same k.
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.k != k) {
+			throw new IllegalArgumentException("Cannot merge sketches with k of " + k + " and " + other.k + "!");
+		}
+		if (other.count == 0) {
+			return;
+		}
+		while (levelCount < other.levelCount) {
+			addLevel();
+		}
+		for (int h = 0; h < other.levelCount; h++) {
+			for (int i = 0; i < other.sizes[h]; i++) {
+				append(h, other.levels[h][i]);
+			}
+		}
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		while (retained >= maxRetained) {
+			compress();
+		}
+	}
+
+	/**
+	 * Estimates a quantile.
+	 *
+	 * @param fraction
+	 *            Which quantile, from 0 (the minimum) to 1 (the maximum), e.g.
+	 *            0.99 for the 99th percentile.
+	 * @return The estimated quantile, or NaN if nothing has been added.
+	 */
+	public double getQuantile(double fraction) {
+		if (!(fraction >= 0.0d && fraction <= 1.0d)) {
+			throw new IllegalArgumentException("Cannot find a quantile of " + fraction + "!");
+		}
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (fraction == 0.0d) {
+			return min;
+		}
+		if (fraction == 1.0d) {
+			return max;
+		}
+
+		// Walk the levels in sorted order together until enough weight is seen.
+		double target = fraction * count;
+		int[] next = new int[levelCount];
+		for (int h = 0; h < levelCount; h++) {
+			Arrays.sort(levels[h], 0, sizes[h]);
+		}
+		long weight = 0;
+		while (true) {
+			int lowest = -1;
+			for (int h = 0; h < levelCount; h++) {
+				if (next[h] < sizes[h] && (lowest < 0 || levels[h][next[h]] < levels[lowest][next[lowest]])) {
+					lowest = h;
+				}
+			}
+			if (lowest < 0) {
+				return max;
+			}
+			weight += 1L << lowest;
+			if (weight >= target) {
+				return levels[lowest][next[lowest]];
+			}
+			next[lowest]++;
+		}
+	}
+
+	/**
+	 * Estimates the fraction of values added that are no larger than a value.
+	 *
+	 * @param value
+	 *            The value to rank.
+	 * @return The estimated fraction, or NaN if nothing has been added.
+	 */
+	public double getRank(double value) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		long weight = 0;
+		for (int h = 0; h < levelCount; h++) {
+			for (int i = 0; i < sizes[h]; i++) {
+				if (levels[h][i] <= value) {
+					weight += 1L << h;
+				}
+			}
+		}
+		return (double) weight / count;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return The smallest value added, or NaN if there are none.
+	 */
+	public double getMin() {
+		return (count == 0) ? Double.NaN : min;
+	}
+
+	/**
+	 * @return The largest value added, or NaN if there are none.
+	 */
+	public double getMax() {
+		return (count == 0) ? Double.NaN : max;
+	}
+
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Saves the sketch, so it can be merged with others later.
+	 *
+	 * @return The sketch, in about 8 bytes per retained value.
+	 */
+	public byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + retained * 8);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(FORMAT_VERSION);
+			out.writeInt(k);
+			out.writeLong(count);
+			out.writeDouble(min);
+			out.writeDouble(max);
+			out.writeInt(levelCount);
+			for (int h = 0; h < levelCount; h++) {
+				out.writeInt(sizes[h]);
+				for (int i = 0; i < sizes[h]; i++) {
+					out.writeDouble(levels[h][i]);
+				}
+			}
+			out.close();
+		} catch (IOException e) {
+			// Cannot happen when writing to memory
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Loads a sketch saved by toByteArray().
+	 *
+	 * @param data
+	 *            The saved sketch.
+	 * @return The sketch.
+	 * @throws IOException
+	 *             If the data is not a saved sketch.
+	 */
+	public static QuantileSketch fromByteArray(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		int version = in.readUnsignedByte();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported sketch version: " + version);
+		}
+		int k = in.readInt();
+		if (k < MIN_LEVEL_CAPACITY) {
+			throw new IOException("Invalid sketch size: " + k);
+		}
+		QuantileSketch sketch = new QuantileSketch(k);
+		sketch.count = in.readLong();
+		sketch.min = in.readDouble();
+		sketch.max = in.readDouble();
+		int levelCount = in.readInt();
+		if (levelCount < 1 || levelCount > 63) {
+			throw new IOException("Invalid sketch level count: " + levelCount);
+		}
+		while (sketch.levelCount < levelCount) {
+			sketch.addLevel();
+		}
+		for (int h = 0; h < levelCount; h++) {
+			int size = in.readInt();
+			if (size < 0 || size > data.length / 8) {
+				throw new IOException("Invalid sketch level size: " + size);
+			}
+			for (int i = 0; i < size; i++) {
+				sketch.append(h, in.readDouble());
+			}
+		}
+		while (sketch.retained >= sketch.maxRetained) {
+			sketch.compress();
+		}
+		return sketch;
+	}
+
+	/**
+	 * The most values level h may hold before it is compacted.
+	 */
+	private int capacity(int h) {
+		int depth = levelCount - h - 1;
+		return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(LEVEL_SHRINK, depth)));
+	}
+
+	private void addLevel() {
+		if (levelCount == levels.length) {
+			levels = Arrays.copyOf(levels, levelCount * 2);
+			sizes = Arrays.copyOf(sizes, levelCount * 2);
+		}
+		levels[levelCount] = new double[MIN_LEVEL_CAPACITY];
+		sizes[levelCount] = 0;
+		levelCount++;
+
+		maxRetained = 0;
+		for (int h = 0; h < levelCount; h++) {
+			maxRetained += capacity(h);
+		}
+	}
+
+	private void append(int h, double value) {
+		if (sizes[h] == levels[h].length) {
+			levels[h] = Arrays.copyOf(levels[h], sizes[h] * 2);
+		}
+		levels[h][sizes[h]++] = value;
+		retained++;
+	}
+
+	/**
+	 * Compacts the lowest full level into the one above it.
+	 */
+	private void compress() {
+		for (int h = 0; h < levelCount; h++) {
+			if (sizes[h] >= capacity(h)) {
+				if (h + 1 == levelCount) {
+					addLevel();
+				}
+				compact(h);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sorts level h and promotes every other value of it to level h + 1. If
+	 * the level holds an odd number of values, the largest stays behind.
+	 */
+	private void compact(int h) {
+		double[] level = levels[h];
+		int size = sizes[h];
+		int even = size & ~1;
+		Arrays.sort(level, 0, size);
+		for (int i = random.nextBoolean() ? 1 : 0; i < even; i += 2) {
+			append(h + 1, level[i]);
+		}
+		if (even < size) {
+			level[0] = level[even];
+		}
+		sizes[h] = size - even;
+		retained -= even;
+	}
+}
@@ -0,0 +1,155 @@
+package maths;
+
+import java.util.Arrays;
+
+/**
+ * Finds the k-th smallest of a range of numbers in expected linear time, by
+ * introselect: quickselect with a three-way partition, so repeated values
+ * cost nothing extra, falling back to sorting if partitioning stops making
+ * progress.
+ *
+ * Each method reorders the range it is given. Doubles are compared with
+ * <code>&lt;</code>, so the range must not contain NaN.
+ */
+class Selection {
+	// Ranges this small are finished off with an insertion sort.
+	private static final int INSERTION_SORT_SIZE = 16;
+
+	private Selection() {
+
+	}
+
+	/**
+	 * Reorders a[from, to) so that a[k] holds the value it would have if the
+	 * range were sorted, with nothing larger before it and nothing smaller
+	 * after it.
+	 */
+	static int select(int[] a, int from, int to, int k) {
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+		while (to - from > INSERTION_SORT_SIZE) {
+			if (depth-- == 0) {
+				Arrays.sort(a, from, to);
+				return a[k];
+			}
+			int pivot = medianOf3(a[from], a[(from + to) >>> 1], a[to - 1]);
+
+			// [from, lt) < pivot, [lt, i) == pivot, [gt, to) > pivot
+			int lt = from, i = from, gt = to;
+			while (i < gt) {
+				int value = a[i];
+				if (value < pivot) {
+					a[i++] = a[lt];
+					a[lt++] = value;
+				} else if (value > pivot) {
+					a[i] = a[--gt];
+					a[gt] = value;
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				to = lt;
+			} else if (k >= gt) {
+				from = gt;
+			} else {
+				return pivot;
+			}
+		}
+		for (int i = from + 1; i < to; i++) {
+			int value = a[i];
+			int j = i - 1;
+			while (j >= from && a[j] > value) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = value;
+		}
+		return a[k];
+	}
+
+	/**
+	 * As select(int[], int, int, int), for doubles.
+	 */
+	static double select(double[] a, int from, int to, int k) {
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+		while (to - from > INSERTION_SORT_SIZE) {
+			if (depth-- == 0) {
+				Arrays.sort(a, from, to);
+				return a[k];
+			}
+			double pivot = medianOf3(a[from], a[(from + to) >>> 1], a[to - 1]);
+
+			// [from, lt) < pivot, [lt, i) == pivot, [gt, to) > pivot
+			int lt = from, i = from, gt = to;
+			while (i < gt) {
+				double value = a[i];
+				if (value < pivot) {
+					a[i++] = a[lt];
+					a[lt++] = value;
+				} else if (value > pivot) {
+					a[i] = a[--gt];
+					a[gt] = value;
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				to = lt;
+			} else if (k >= gt) {
+				from = gt;
+			} else {
+				return pivot;
+			}
+		}
+		for (int i = from + 1; i < to; i++) {
+			double value = a[i];
+			int j = i - 1;
+			while (j >= from && a[j] > value) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = value;
+		}
+		return a[k];
+	}
+
+	/**
+	 * Returns the largest value of a[from, to).
+	 */
+	static int max(int[] a, int from, int to) {
+		int max = a[from];
+		for (int i = from + 1; i < to; i++) {
+			if (a[i] > max) {
+				max = a[i];
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the largest value of a[from, to).
+	 */
+	static double max(double[] a, int from, int to) {
+		double max = a[from];
+		for (int i = from + 1; i < to; i++) {
+			if (a[i] > max) {
+				max = a[i];
+			}
+		}
+		return max;
+	}
+
+	private static int medianOf3(int a, int b, int c) {
+		if (a < b) {
+			return (b < c) ? b : (a < c) ? c : a;
+		}
+		return (a < c) ? a : (b < c) ? c : b;
+	}
+
+	private static double medianOf3(double a, double b, double c) {
+		if (a < b) {
+			return (b < c) ? b : (a < c) ? c : a;
+		}
+		return (a < c) ? a : (b < c) ? c : b;
+	}
+}
@@ -14,17 +14,24 @@ public class StandardDeviation {
 
 	}
 
+	/**
+	 * Finds the standard deviation of a list of integers.
+	 * 
+	 * @param input
+	 *            A <code>List</code> of <code>Integer</code>s.
+	 * @return The population standard deviation, rounded down.
+	 * @throws IllegalArgumentException
+	 *             If the list is empty.
+	 */
 	public Integer findSDInt(List<Integer> input) {
-		AverageFinder af = new AverageFinder();
-		Integer mean = af.findMean(input);
-
-		Integer top = 0;
-		Integer n = input.size();
-
-		for (Integer i : input) {
-			i += (i - mean) ^ 2;
+		if (input.isEmpty()) {
+			throw new IllegalArgumentException("Cannot find standard deviation of an empty list of numbers!");
+		}
+		StatsAccumulator stats = new StatsAccumulator();
+		for (int i : input) {
+			stats.add(i);
 		}
-		Integer SD = (int) Math.sqrt(top / n);
+		Integer SD = (int) stats.getStandardDeviation();
 
 		return SD;
 	}
@@ -43,4 +50,65 @@ public class StandardDeviation {
 
 		return SD;
 	}
+
+	/**
+	 * Finds the standard deviation of one column of a table, without boxing.
+	 * 
+	 * @param table
+	 *            The table to read from.
+	 * @param column
+	 *            The column to use.
+	 * @return The population standard deviation of the column, rounded down.
+	 * @throws IllegalArgumentException
+	 *             If the table is empty.
+	 */
+	public int findSDInt(IntTable table, int column) {
+		int n = table.getRowCount();
+		if (n < 1) {
+			throw new IllegalArgumentException("Cannot find standard deviation of an empty list of numbers!");
+		}
+		// The exact mean; the int from AverageFinder would skew every difference.
+		long sum = 0;
+		for (int row = 0; row < n; row++) {
+			sum += table.get(row, column);
+		}
+		double mean = (double) sum / n;
+
+		double top = 0.0d;
+		for (int row = 0; row < n; row++) {
+			double difference = table.get(row, column) - mean;
+			top += difference * difference;
+		}
+		return (int) Math.sqrt(top / n);
+	}
+
+	/**
+	 * Finds the standard deviation of one column of a table, without boxing.
+	 * 
+	 * @param table
+	 *            The table to read from.
+	 * @param column
+	 *            The column to use.
+	 * @return The population standard deviation of the column.
+	 * @throws IllegalArgumentException
+	 *             If the table is empty.
+	 */
+	public double findSDDouble(DoubleTable table, int column) {
+		int n = table.getRowCount();
+		if (n < 1) {
+			throw new IllegalArgumentException("Cannot find standard deviation of an empty list of numbers!");
+		}
+		double sum = 0.0d;
+		for (int row = 0; row < n; row++) {
+			sum += table.get(row, column);
+		}
+		double mean = sum / n;
+
+		double top = 0.0d;
+		for (int row = 0; row < n; row++) {
+			double difference = table.get(row, column) - mean;
+			top += difference * difference;
+		}
+		return Math.sqrt(top / n);
+	}
 }
@@ -0,0 +1,147 @@
+package maths;
+
+/**
+ * Collects the count, mean, variance, minimum and maximum of a stream of
+ * numbers in a single pass, without storing them. Uses Welford's method, so
+ * the variance stays accurate even when the values are large compared to
+ * their spread.
+ *
+ * Accumulators filled separately, e.g. one per thread, can be combined with
+ * merge(). An accumulator is not thread-safe.
+ */
+public class StatsAccumulator {
+	private long count = 0;
+	private double mean = 0.0d;
+	// Sum of squared differences from the current mean
+	private double m2 = 0.0d;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	public StatsAccumulator() {
+
+	}
+
+	public void add(int value) {
+		add((double) value);
+	}
+
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	public void addAll(int[] values) {
+		for (int value : values) {
+			add((double) value);
+		}
+	}
+
+	public void addAll(double[] values) {
+		for (double value : values) {
+			add(value);
+		}
+	}
+
+	/**
+	 * Adds every value collected by another accumulator, as if they had been
+	 * added to this one. The other accumulator is not changed.
+	 *
+	 * @param other
+	 *            The accumulator to combine with this one.
+	 */
+	public void merge(StatsAccumulator other) {
+		if (other.count == 0) {
+			return;
+		}
+		if (count == 0) {
+			count = other.count;
+			mean = other.mean;
+			m2 = other.m2;
+			min = other.min;
+			max = other.max;
+			return;
+		}
+		long total = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / total;
+		m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+		count = total;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Forgets every value added so far.
+	 */
+	public void reset() {
+		count = 0;
+		mean = 0.0d;
+		m2 = 0.0d;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return The mean of the values, or NaN if there are none.
+	 */
+	public double getMean() {
+		return (count == 0) ? Double.NaN : mean;
+	}
+
+	/**
+	 * @return The population variance of the values, or NaN if there are none.
+	 */
+	public double getVariance() {
+		return (count == 0) ? Double.NaN : m2 / count;
+	}
+
+	/**
+	 * @return The sample variance of the values, or NaN if there are fewer
+	 *         than two.
+	 */
+	public double getSampleVariance() {
+		return (count < 2) ? Double.NaN : m2 / (count - 1);
+	}
+
+	/**
+	 * @return The population standard deviation of the values, or NaN if
+	 *         there are none.
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * @return The sample standard deviation of the values, or NaN if there
+	 *         are fewer than two.
+	 */
+	public double getSampleStandardDeviation() {
+		return Math.sqrt(getSampleVariance());
+	}
+
+	/**
+	 * @return The smallest value, or NaN if there are none.
+	 */
+	public double getMin() {
+		return (count == 0) ? Double.NaN : min;
+	}
+
+	/**
+	 * @return The largest value, or NaN if there are none.
+	 */
+	public double getMax() {
+		return (count == 0) ? Double.NaN : max;
+	}
+}
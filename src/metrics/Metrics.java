@@ -12,6 +12,18 @@ import java.util.List;
  * 
  */
 public class Metrics {
+	// The number of values returned by getMetrics().
+	public static final int FIELD_COUNT = 7;
+
+	// The position of each value in getMetrics().
+	public static final int ABS_START_X = 0;
+	public static final int ABS_START_Y = 1;
+	public static final int ABS_END_X = 2;
+	public static final int ABS_END_Y = 3;
+	public static final int REL_CENTROID_X = 4;
+	public static final int REL_ECCENTRICITY_X = 5;
+	public static final int REL_VELOCITY_X = 6;
+
 	private int absStartX;
 	private int absStartY;
 	private int absEndX;
@@ -52,6 +64,22 @@ public class Metrics {
 		this.setRelVelocityX(Integer.parseInt(data[6]));
 	}
 
+	/**
+	 * Constructor, taking all metrics in the same order as getMetrics().
+	 * 
+	 * @param data
+	 *            The seven metrics values.
+	 */
+	public Metrics(int[] data) {
+		this.setAbsStartX(data[0]);
+		this.setAbsStartY(data[1]);
+		this.setAbsEndX(data[2]);
+		this.setAbsEndY(data[3]);
+		this.setRelCentroidX(data[4]);
+		this.setRelEccentricityX(data[5]);
+		this.setRelVelocityX(data[6]);
+	}
+
 	/**
 	 * Get all metrics in the form of a list. Here only for compatibility with
 	 * our CSV-writer.
@@ -0,0 +1,476 @@
+package metrics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import fileHandling.FileHandler;
+
+/**
+ * Computes <code>Metrics</code> from frames in which the character stands out
+ * from a plain background.
+ *
+ * A pixel belongs to the character if it is not fully transparent and its
+ * colour differs from the background colour. From those pixels, a single pass
+ * over each frame finds:
+ * <ul>
+ * <li>the bounding box,</li>
+ * <li>relCentroidX: the x-coordinate of the centre of mass, relative to the
+ * left of the bounding box,</li>
+ * <li>relEccentricityX: how far the centre of mass lies right of the middle
+ * of the bounding box,</li>
+ * <li>relVelocityX: how far the centre of mass has moved right since the
+ * previous frame of a sequence.</li>
+ * </ul>
+ * A frame with no character pixels has a bounding box of -1s and relative
+ * metrics of 0.
+ *
+ * Pixels are read straight from the raster's data array for the common image
+ * types, so no colour conversion is done per pixel. If an executor is set,
+ * sequences are split across it by frame, and a single large frame is split
+ * across it in bands of rows.
+ */
+public class MetricsExtractor {
+	public static final int DEFAULT_BACKGROUND = 0x000000;
+	public static final int DEFAULT_BAND_HEIGHT = 256;
+
+	private final int background;
+	private ExecutorService executor = null;
+	private int bandHeight = DEFAULT_BAND_HEIGHT;
+
+	/**
+	 * Constructor, for frames on a black background.
+	 */
+	public MetricsExtractor() {
+		this(DEFAULT_BACKGROUND);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param background
+	 *            The background colour, as 0xRRGGBB.
+	 */
+	public MetricsExtractor(int background) {
+		this.background = background & 0xFFFFFF;
+	}
+
+	/**
+	 * Sets the executor to extract on, or null to extract on the calling
+	 * thread.
+	 *
+	 * @param executor
+	 *            The executor to use.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets how many rows of a single large frame each parallel task scans.
+	 *
+	 * @param bandHeight
+	 *            The number of rows per task.
+	 */
+	public void setBandHeight(int bandHeight) {
+		if (bandHeight < 1) {
+			throw new IllegalArgumentException("Band height must be positive!");
+		}
+		this.bandHeight = bandHeight;
+	}
+
+	/**
+	 * Computes the metrics of a single frame. Its velocity is 0.
+	 *
+	 * @param frame
+	 *            The frame to measure.
+	 * @return The frame's metrics.
+	 */
+	public Metrics extract(BufferedImage frame) {
+		int[] fields = new int[Metrics.FIELD_COUNT];
+		measure(frame, fields, 0, executor);
+		return new Metrics(fields);
+	}
+
+	/**
+	 * Computes the metrics of a sequence of frames.
+	 *
+	 * @param frames
+	 *            The frames, in order.
+	 * @return The metrics of each frame, in order.
+	 */
+	public List<Metrics> extract(List<BufferedImage> frames) {
+		return unpack(extractPacked(frames));
+	}
+
+	/**
+	 * Computes the metrics of a sequence of frames into one array, one frame
+	 * after another, in the same order as <code>Metrics.getMetrics()</code>.
+	 *
+	 * @param frames
+	 *            The frames, in order.
+	 * @return The interleaved metrics of every frame.
+	 */
+	public int[] extractPacked(final List<BufferedImage> frames) {
+		try {
+			return run(frames.size(), new FrameLoader() {
+				@Override
+				public BufferedImage load(int index) {
+					return frames.get(index);
+				}
+			});
+		} catch (IOException e) {
+			// Cannot happen: nothing is loaded
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Loads and measures a sequence of frames from a handler's input folder.
+	 * Each frame is loaded by the task that measures it, so frames need not
+	 * all be in memory at once.
+	 *
+	 * @param handler
+	 *            The handler to load frames with.
+	 * @param names
+	 *            The names of the frames, in order.
+	 * @return The metrics of each frame, in order.
+	 * @throws IOException
+	 *             If a frame cannot be loaded.
+	 */
+	public List<Metrics> extract(FileHandler handler, List<String> names) throws IOException {
+		return unpack(extractPacked(handler, names));
+	}
+
+	/**
+	 * Loads and measures a sequence of frames from a handler's input folder,
+	 * into one array as extractPacked(List) does.
+	 *
+	 * @param handler
+	 *            The handler to load frames with.
+	 * @param names
+	 *            The names of the frames, in order.
+	 * @return The interleaved metrics of every frame.
+	 * @throws IOException
+	 *             If a frame cannot be loaded.
+	 */
+	public int[] extractPacked(final FileHandler handler, final List<String> names) throws IOException {
+		return run(names.size(), new FrameLoader() {
+			@Override
+			public BufferedImage load(int index) throws IOException {
+				return handler.readImage(names.get(index));
+			}
+		});
+	}
+
+	/**
+	 * Measures frames [0, count), in ranges across the executor if there is
+	 * one, then works out each frame's velocity from the one before.
+	 */
+	private int[] run(int count, final FrameLoader loader) throws IOException {
+		final int[] fields = new int[count * Metrics.FIELD_COUNT];
+		int pieces = Math.min(count, Runtime.getRuntime().availableProcessors() * 4);
+
+		if (executor == null || pieces < 2) {
+			for (int i = 0; i < count; i++) {
+				measure(loader.load(i), fields, i * Metrics.FIELD_COUNT, null);
+			}
+		} else {
+			List<Future<Void>> tasks = new ArrayList<Future<Void>>(pieces);
+			for (int piece = 0; piece < pieces; piece++) {
+				final int from = (int) ((long) count * piece / pieces);
+				final int to = (int) ((long) count * (piece + 1) / pieces);
+				tasks.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						// Bands are not split further, so tasks never wait on each other.
+						for (int i = from; i < to; i++) {
+							measure(loader.load(i), fields, i * Metrics.FIELD_COUNT, null);
+						}
+						return null;
+					}
+				}));
+			}
+			await(tasks);
+		}
+
+		int previous = -1;
+		for (int offset = 0; offset < fields.length; offset += Metrics.FIELD_COUNT) {
+			int centroid = (fields[offset] < 0) ? -1 : fields[offset] + fields[offset + 4];
+			if (centroid >= 0 && previous >= 0) {
+				fields[offset + 6] = centroid - previous;
+			}
+			previous = centroid;
+		}
+		return fields;
+	}
+
+	/**
+	 * Measures one frame into fields[offset, offset + 7), splitting it into
+	 * bands across the executor if one is given and the frame is tall enough.
+	 */
+	private void measure(final BufferedImage frame, int[] fields, int offset, ExecutorService bands) {
+		int height = frame.getHeight();
+		Shape shape;
+		if (bands == null || height <= bandHeight) {
+			shape = scan(frame, 0, height);
+		} else {
+			List<Future<Shape>> tasks = new ArrayList<Future<Shape>>();
+			for (int top = 0; top < height; top += bandHeight) {
+				final int from = top;
+				final int to = Math.min(top + bandHeight, height);
+				tasks.add(bands.submit(new Callable<Shape>() {
+					@Override
+					public Shape call() {
+						return scan(frame, from, to);
+					}
+				}));
+			}
+			shape = new Shape();
+			try {
+				for (Shape band : await(tasks)) {
+					shape.add(band);
+				}
+			} catch (IOException e) {
+				// Cannot happen: scanning does no I/O
+				throw new IllegalStateException(e);
+			}
+		}
+
+		if (shape.count == 0) {
+			fields[offset] = -1;
+			fields[offset + 1] = -1;
+			fields[offset + 2] = -1;
+			fields[offset + 3] = -1;
+			return;
+		}
+		int centroidX = (int) Math.round((double) shape.sumX / shape.count);
+		fields[offset] = shape.minX;
+		fields[offset + 1] = shape.minY;
+		fields[offset + 2] = shape.maxX;
+		fields[offset + 3] = shape.maxY;
+		fields[offset + 4] = centroidX - shape.minX;
+		fields[offset + 5] = centroidX - (shape.minX + shape.maxX) / 2;
+	}
+
+	/**
+	 * Scans rows [y0, y1) of a frame.
+	 */
+	private Shape scan(BufferedImage frame, int y0, int y1) {
+		Shape shape = new Shape();
+		int width = frame.getWidth();
+		WritableRaster raster = frame.getRaster();
+		SampleModel model = raster.getSampleModel();
+		DataBuffer buffer = raster.getDataBuffer();
+		int tx = raster.getSampleModelTranslateX();
+		int ty = raster.getSampleModelTranslateY();
+		int[] row = new int[width];
+
+		switch (frame.getType()) {
+		case BufferedImage.TYPE_INT_RGB:
+		case BufferedImage.TYPE_INT_ARGB:
+			if (model instanceof SinglePixelPackedSampleModel && buffer instanceof DataBufferInt) {
+				int[] data = ((DataBufferInt) buffer).getData();
+				int stride = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+				int alpha = (frame.getType() == BufferedImage.TYPE_INT_RGB) ? 0xFF000000 : 0;
+				for (int y = y0; y < y1; y++) {
+					scanRow(shape, data, buffer.getOffset() + (y - ty) * stride - tx, alpha, width, y);
+				}
+				return shape;
+			}
+			break;
+		case BufferedImage.TYPE_INT_BGR:
+			if (model instanceof SinglePixelPackedSampleModel && buffer instanceof DataBufferInt) {
+				int[] data = ((DataBufferInt) buffer).getData();
+				int stride = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+				for (int y = y0; y < y1; y++) {
+					int start = buffer.getOffset() + (y - ty) * stride - tx;
+					for (int x = 0; x < width; x++) {
+						int bgr = data[start + x];
+						row[x] = 0xFF000000 | ((bgr & 0xFF) << 16) | (bgr & 0xFF00) | ((bgr >> 16) & 0xFF);
+					}
+					scanRow(shape, row, 0, 0, width, y);
+				}
+				return shape;
+			}
+			break;
+		case BufferedImage.TYPE_3BYTE_BGR:
+		case BufferedImage.TYPE_4BYTE_ABGR:
+			if (model instanceof PixelInterleavedSampleModel && buffer instanceof DataBufferByte) {
+				PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) model;
+				byte[] data = ((DataBufferByte) buffer).getData();
+				int stride = interleaved.getScanlineStride();
+				int pixelStride = interleaved.getPixelStride();
+				int[] bands = interleaved.getBandOffsets();
+				boolean hasAlpha = bands.length > 3;
+				for (int y = y0; y < y1; y++) {
+					int position = buffer.getOffset() + (y - ty) * stride - tx * pixelStride;
+					for (int x = 0; x < width; x++, position += pixelStride) {
+						int alpha = hasAlpha ? (data[position + bands[3]] & 0xFF) : 0xFF;
+						row[x] = (alpha << 24) | ((data[position + bands[0]] & 0xFF) << 16) | ((data[position + bands[1]] & 0xFF) << 8)
+								| (data[position + bands[2]] & 0xFF);
+					}
+					scanRow(shape, row, 0, 0, width, y);
+				}
+				return shape;
+			}
+			break;
+		case BufferedImage.TYPE_BYTE_GRAY:
+		case BufferedImage.TYPE_BYTE_INDEXED:
+			if (model instanceof PixelInterleavedSampleModel && buffer instanceof DataBufferByte
+					&& ((PixelInterleavedSampleModel) model).getPixelStride() == 1) {
+				int[] colours = colourTable(frame.getColorModel());
+				byte[] data = ((DataBufferByte) buffer).getData();
+				int stride = ((PixelInterleavedSampleModel) model).getScanlineStride();
+				for (int y = y0; y < y1; y++) {
+					int start = buffer.getOffset() + (y - ty) * stride - tx;
+					for (int x = 0; x < width; x++) {
+						row[x] = colours[data[start + x] & 0xFF];
+					}
+					scanRow(shape, row, 0, 0, width, y);
+				}
+				return shape;
+			}
+			break;
+		}
+
+		// Any other layout: let the image convert each row
+		for (int y = y0; y < y1; y++) {
+			frame.getRGB(0, y, width, 1, row, 0, width);
+			scanRow(shape, row, 0, 0, width, y);
+		}
+		return shape;
+	}
+
+	/**
+	 * Adds the character pixels of one row, given as ARGB, to a shape.
+	 *
+	 * @param alpha
+	 *            Bits to set in every pixel, for layouts without alpha.
+	 */
+	private void scanRow(Shape shape, int[] argb, int start, int alpha, int width, int y) {
+		int first = -1;
+		int last = -1;
+		long count = 0;
+		long sumX = 0;
+		for (int x = 0; x < width; x++) {
+			int pixel = argb[start + x] | alpha;
+			if ((pixel >>> 24) != 0 && (pixel & 0xFFFFFF) != background) {
+				if (first < 0) {
+					first = x;
+				}
+				last = x;
+				count++;
+				sumX += x;
+			}
+		}
+		if (first >= 0) {
+			shape.addRow(y, first, last, count, sumX);
+		}
+	}
+
+	/**
+	 * Returns the ARGB colour of every possible byte value of a one-byte
+	 * colour model, converted just as <code>BufferedImage.getRGB</code> would.
+	 */
+	private static int[] colourTable(ColorModel model) {
+		int[] colours = new int[256];
+		byte[] pixel = new byte[1];
+		for (int i = 0; i < colours.length; i++) {
+			pixel[0] = (byte) i;
+			colours[i] = model.getRGB(pixel);
+		}
+		return colours;
+	}
+
+	private static List<Metrics> unpack(int[] fields) {
+		List<Metrics> metrics = new ArrayList<Metrics>(fields.length / Metrics.FIELD_COUNT);
+		int[] record = new int[Metrics.FIELD_COUNT];
+		for (int offset = 0; offset < fields.length; offset += Metrics.FIELD_COUNT) {
+			System.arraycopy(fields, offset, record, 0, Metrics.FIELD_COUNT);
+			metrics.add(new Metrics(record));
+		}
+		return metrics;
+	}
+
+	/**
+	 * Waits for every task, rethrowing the first failure.
+	 */
+	private static <T> List<T> await(List<Future<T>> tasks) throws IOException {
+		List<T> results = new ArrayList<T>(tasks.size());
+		try {
+			for (Future<T> task : tasks) {
+				results.add(task.get());
+			}
+		} catch (InterruptedException e) {
+			cancel(tasks);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while extracting metrics", e);
+		} catch (ExecutionException e) {
+			cancel(tasks);
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+		return results;
+	}
+
+	private static void cancel(List<? extends Future<?>> tasks) {
+		for (Future<?> task : tasks) {
+			task.cancel(true);
+		}
+	}
+
+	private interface FrameLoader {
+		BufferedImage load(int index) throws IOException;
+	}
+
+	/**
+	 * The running bounding box and first moments of a frame, or part of one.
+	 */
+	private static class Shape {
+		long count = 0;
+		long sumX = 0;
+		int minX = Integer.MAX_VALUE;
+		int maxX = -1;
+		int minY = Integer.MAX_VALUE;
+		int maxY = -1;
+
+		void addRow(int y, int first, int last, long rowCount, long rowSumX) {
+			count += rowCount;
+			sumX += rowSumX;
+			minX = Math.min(minX, first);
+			maxX = Math.max(maxX, last);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+
+		void add(Shape other) {
+			count += other.count;
+			sumX += other.sumX;
+			minX = Math.min(minX, other.minX);
+			maxX = Math.max(maxX, other.maxX);
+			minY = Math.min(minY, other.minY);
+			maxY = Math.max(maxY, other.maxY);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package metrics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a binary metrics file written by <code>MetricsWriter</code>. The file
+ * is memory-mapped, so any record can be read directly by its frame number,
+ * and the whole file can be copied out in bulk.
+ */
+public class MetricsReader implements Closeable {
+	// Records per mapped segment, keeping each segment well under 2GB.
+	private static final int RECORDS_PER_SEGMENT = 1 << 24;
+
+	private RandomAccessFile file;
+	private MappedByteBuffer[] segments;
+	private long recordCount;
+
+	/**
+	 * Opens a metrics file and checks its header.
+	 * 
+	 * @param file
+	 *            The file to read.
+	 * @throws IOException
+	 *             If the file cannot be read, or is not a metrics file.
+	 */
+	public MetricsReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = this.file.getChannel();
+			long size = channel.size();
+			if (size < MetricsWriter.HEADER_SIZE) {
+				throw new IOException("Not a metrics file: " + file);
+			}
+
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, MetricsWriter.HEADER_SIZE);
+			if (header.getInt() != MetricsWriter.MAGIC) {
+				throw new IOException("Not a metrics file: " + file);
+			}
+			int version = header.getInt();
+			if (version != MetricsWriter.VERSION) {
+				throw new IOException("Unsupported metrics file version " + version + ": " + file);
+			}
+			int fields = header.getInt();
+			if (fields != Metrics.FIELD_COUNT) {
+				throw new IOException("Expected " + Metrics.FIELD_COUNT + " fields per record, found " + fields + ": " + file);
+			}
+
+			recordCount = (size - MetricsWriter.HEADER_SIZE) / MetricsWriter.RECORD_SIZE;
+			int segmentCount = (int) ((recordCount + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+			segments = new MappedByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				long first = (long) i * RECORDS_PER_SEGMENT;
+				long records = Math.min(RECORDS_PER_SEGMENT, recordCount - first);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, MetricsWriter.HEADER_SIZE + first * MetricsWriter.RECORD_SIZE,
+						records * MetricsWriter.RECORD_SIZE);
+			}
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of complete records in the file.
+	 * 
+	 * @return The number of frames stored.
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Reads a single frame's metrics.
+	 * 
+	 * @param index
+	 *            The frame number to read, starting at 0.
+	 * @return The metrics stored for that frame.
+	 */
+	public Metrics read(long index) {
+		int[] fields = new int[Metrics.FIELD_COUNT];
+		read(index, fields, 0);
+		return new Metrics(fields);
+	}
+
+	/**
+	 * Reads a single frame's metrics into an existing array, in the same order
+	 * as <code>Metrics.getMetrics()</code>.
+	 * 
+	 * @param index
+	 *            The frame number to read, starting at 0.
+	 * @param destination
+	 *            The array to fill.
+	 * @param offset
+	 *            Where in the array to put the first value.
+	 */
+	public void read(long index, int[] destination, int offset) {
+		if (index < 0 || index >= recordCount) {
+			throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+		}
+		MappedByteBuffer segment = segments[(int) (index / RECORDS_PER_SEGMENT)];
+		int position = (int) (index % RECORDS_PER_SEGMENT) * MetricsWriter.RECORD_SIZE;
+		for (int i = 0; i < Metrics.FIELD_COUNT; i++) {
+			destination[offset + i] = segment.getInt(position + i * 4);
+		}
+	}
+
+	/**
+	 * Copies every record into one array, one record after another, in the
+	 * same order as <code>Metrics.getMetrics()</code>.
+	 * 
+	 * @return The interleaved fields of every frame.
+	 */
+	public int[] readAllFields() {
+		if (recordCount * Metrics.FIELD_COUNT > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Too many records to hold in one array: " + recordCount);
+		}
+		int[] fields = new int[(int) (recordCount * Metrics.FIELD_COUNT)];
+		int offset = 0;
+		for (MappedByteBuffer segment : segments) {
+			int count = segment.capacity() / 4;
+			// Bulk copy out of the mapping
+			segment.asIntBuffer().get(fields, offset, count);
+			offset += count;
+		}
+		return fields;
+	}
+
+	/**
+	 * Reads every record as a <code>Metrics</code> object.
+	 * 
+	 * @return The metrics of every frame, in order.
+	 */
+	public List<Metrics> readAll() {
+		int[] fields = readAllFields();
+		List<Metrics> metrics = new ArrayList<Metrics>((int) recordCount);
+		int[] record = new int[Metrics.FIELD_COUNT];
+		for (int offset = 0; offset < fields.length; offset += Metrics.FIELD_COUNT) {
+			System.arraycopy(fields, offset, record, 0, Metrics.FIELD_COUNT);
+			metrics.add(new Metrics(record));
+		}
+		return metrics;
+	}
+
+	/**
+	 * Closes the file. Mapped records are released by the garbage collector.
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,349 @@
+package metrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import opencsv.CSVWriter;
+
+/**
+ * Holds the metrics of many frames in a single <code>int</code> array, seven
+ * values per frame in the same order as <code>Metrics.getMetrics()</code>, so
+ * no object or boxed value is created per frame.
+ *
+ * Frames are read and changed in place through a <code>Cursor</code>, and
+ * written out directly as csv or binary records.
+ */
+public class MetricsStore {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int[] fields;
+	private int size = 0;
+
+	/**
+	 * Constructor, making room for 1024 frames up front.
+	 */
+	public MetricsStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            The number of frames to make room for up front.
+	 */
+	public MetricsStore(int capacity) {
+		fields = new int[Math.max(capacity, 1) * Metrics.FIELD_COUNT];
+	}
+
+	/**
+	 * Reads every record of a binary metrics file.
+	 *
+	 * @param reader
+	 *            The file to read.
+	 * @return A store holding every frame in the file.
+	 */
+	public static MetricsStore read(MetricsReader reader) {
+		int[] all = reader.readAllFields();
+		MetricsStore store = new MetricsStore(0);
+		store.fields = all;
+		store.size = all.length / Metrics.FIELD_COUNT;
+		return store;
+	}
+
+	/**
+	 * Appends a frame's metrics.
+	 *
+	 * @param metrics
+	 *            The metrics to add.
+	 */
+	public void add(Metrics metrics) {
+		ensureCapacity(size + 1);
+		int offset = size * Metrics.FIELD_COUNT;
+		fields[offset + Metrics.ABS_START_X] = metrics.getAbsStartX();
+		fields[offset + Metrics.ABS_START_Y] = metrics.getAbsStartY();
+		fields[offset + Metrics.ABS_END_X] = metrics.getAbsEndX();
+		fields[offset + Metrics.ABS_END_Y] = metrics.getAbsEndY();
+		fields[offset + Metrics.REL_CENTROID_X] = metrics.getRelCentroidX();
+		fields[offset + Metrics.REL_ECCENTRICITY_X] = metrics.getRelEccentricityX();
+		fields[offset + Metrics.REL_VELOCITY_X] = metrics.getRelVelocityX();
+		size++;
+	}
+
+	/**
+	 * Appends a frame's bounding box, with relative metrics of 0.
+	 */
+	public void add(int absStartX, int absStartY, int absEndX, int absEndY) {
+		ensureCapacity(size + 1);
+		int offset = size * Metrics.FIELD_COUNT;
+		fields[offset + Metrics.ABS_START_X] = absStartX;
+		fields[offset + Metrics.ABS_START_Y] = absStartY;
+		fields[offset + Metrics.ABS_END_X] = absEndX;
+		fields[offset + Metrics.ABS_END_Y] = absEndY;
+		fields[offset + Metrics.REL_CENTROID_X] = 0;
+		fields[offset + Metrics.REL_ECCENTRICITY_X] = 0;
+		fields[offset + Metrics.REL_VELOCITY_X] = 0;
+		size++;
+	}
+
+	/**
+	 * Appends several frames' metrics, stored one record after another, e.g.
+	 * as returned by <code>MetricsExtractor.extractPacked()</code>.
+	 *
+	 * @param records
+	 *            The interleaved metrics to add.
+	 * @param offset
+	 *            The first value to add, at the start of a record.
+	 * @param count
+	 *            The number of records to add.
+	 */
+	public void addAll(int[] records, int offset, int count) {
+		ensureCapacity(size + count);
+		System.arraycopy(records, offset, fields, size * Metrics.FIELD_COUNT, count * Metrics.FIELD_COUNT);
+		size += count;
+	}
+
+	/**
+	 * Returns the number of frames stored.
+	 *
+	 * @return The number of frames.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Forgets every frame, keeping the memory for reuse.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns one value of one frame.
+	 *
+	 * @param frame
+	 *            The frame, starting at 0.
+	 * @param field
+	 *            Which value, e.g. <code>Metrics.ABS_START_X</code>.
+	 * @return The value.
+	 */
+	public int get(int frame, int field) {
+		checkFrame(frame);
+		return fields[frame * Metrics.FIELD_COUNT + field];
+	}
+
+	/**
+	 * Changes one value of one frame.
+	 *
+	 * @param frame
+	 *            The frame, starting at 0.
+	 * @param field
+	 *            Which value, e.g. <code>Metrics.REL_VELOCITY_X</code>.
+	 * @param value
+	 *            The new value.
+	 */
+	public void set(int frame, int field, int value) {
+		checkFrame(frame);
+		fields[frame * Metrics.FIELD_COUNT + field] = value;
+	}
+
+	/**
+	 * Copies one frame's metrics into an existing array.
+	 *
+	 * @param frame
+	 *            The frame, starting at 0.
+	 * @param destination
+	 *            The array to fill.
+	 * @param offset
+	 *            Where in the array to put the first value.
+	 */
+	public void get(int frame, int[] destination, int offset) {
+		checkFrame(frame);
+		System.arraycopy(fields, frame * Metrics.FIELD_COUNT, destination, offset, Metrics.FIELD_COUNT);
+	}
+
+	/**
+	 * Returns one frame's metrics as a new <code>Metrics</code> object.
+	 *
+	 * @param frame
+	 *            The frame, starting at 0.
+	 * @return The frame's metrics.
+	 */
+	public Metrics getMetrics(int frame) {
+		int[] record = new int[Metrics.FIELD_COUNT];
+		get(frame, record, 0);
+		return new Metrics(record);
+	}
+
+	/**
+	 * Copies one value of every frame into a new array.
+	 *
+	 * @param field
+	 *            Which value, e.g. <code>Metrics.REL_CENTROID_X</code>.
+	 * @return The value for each frame, in order.
+	 */
+	public int[] getColumn(int field) {
+		int[] column = new int[size];
+		for (int frame = 0, offset = field; frame < size; frame++, offset += Metrics.FIELD_COUNT) {
+			column[frame] = fields[offset];
+		}
+		return column;
+	}
+
+	/**
+	 * Copies every frame's metrics into a new array, one record after another.
+	 *
+	 * @return The interleaved metrics of every frame.
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(fields, size * Metrics.FIELD_COUNT);
+	}
+
+	/**
+	 * Returns a cursor, placed before the first frame.
+	 *
+	 * @return A new cursor over this store.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Writes every frame as a line of a csv file, as
+	 * <code>CSVHandler.writeCSVLine()</code> would.
+	 *
+	 * @param writer
+	 *            The writer to write to. It is not flushed or closed.
+	 */
+	public void writeCSV(CSVWriter writer) {
+		int[] record = new int[Metrics.FIELD_COUNT];
+		for (int offset = 0; offset < size * Metrics.FIELD_COUNT; offset += Metrics.FIELD_COUNT) {
+			System.arraycopy(fields, offset, record, 0, Metrics.FIELD_COUNT);
+			writer.writeNext(record);
+		}
+	}
+
+	/**
+	 * Writes every frame as a binary record.
+	 *
+	 * @param writer
+	 *            The writer to write to. It is not flushed or closed.
+	 * @throws IOException
+	 */
+	public void writeBinary(MetricsWriter writer) throws IOException {
+		writer.write(fields, 0, size);
+	}
+
+	private void ensureCapacity(int frames) {
+		if (frames < 0 || (long) frames * Metrics.FIELD_COUNT > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Too many frames to hold in one store: " + frames);
+		}
+		int needed = frames * Metrics.FIELD_COUNT;
+		if (needed > fields.length) {
+			long grown = Math.max((long) fields.length * 2, needed);
+			fields = Arrays.copyOf(fields, (int) Math.min(grown, Integer.MAX_VALUE - (Integer.MAX_VALUE % Metrics.FIELD_COUNT)));
+		}
+	}
+
+	private void checkFrame(int frame) {
+		if (frame < 0 || frame >= size) {
+			throw new IndexOutOfBoundsException("Frame " + frame + " of " + size);
+		}
+	}
+
+	/**
+	 * Reads and changes one frame at a time without creating any objects.
+	 * Frames added while a cursor is in use are visible to it.
+	 */
+	public class Cursor {
+		private int frame = -1;
+		private int offset = -Metrics.FIELD_COUNT;
+
+		/**
+		 * Moves to the next frame.
+		 *
+		 * @return false if there are no more frames.
+		 */
+		public boolean next() {
+			if (frame + 1 >= size) {
+				return false;
+			}
+			frame++;
+			offset += Metrics.FIELD_COUNT;
+			return true;
+		}
+
+		/**
+		 * Moves to a given frame.
+		 *
+		 * @param frame
+		 *            The frame, starting at 0.
+		 */
+		public void moveTo(int frame) {
+			checkFrame(frame);
+			this.frame = frame;
+			this.offset = frame * Metrics.FIELD_COUNT;
+		}
+
+		public int getFrame() {
+			return frame;
+		}
+
+		public int getAbsStartX() {
+			return fields[offset + Metrics.ABS_START_X];
+		}
+
+		public int getAbsStartY() {
+			return fields[offset + Metrics.ABS_START_Y];
+		}
+
+		public int getAbsEndX() {
+			return fields[offset + Metrics.ABS_END_X];
+		}
+
+		public int getAbsEndY() {
+			return fields[offset + Metrics.ABS_END_Y];
+		}
+
+		public int getRelCentroidX() {
+			return fields[offset + Metrics.REL_CENTROID_X];
+		}
+
+		public int getRelEccentricityX() {
+			return fields[offset + Metrics.REL_ECCENTRICITY_X];
+		}
+
+		public int getRelVelocityX() {
+			return fields[offset + Metrics.REL_VELOCITY_X];
+		}
+
+		public void setAbsStartX(int absStartX) {
+			fields[offset + Metrics.ABS_START_X] = absStartX;
+		}
+
+		public void setAbsStartY(int absStartY) {
+			fields[offset + Metrics.ABS_START_Y] = absStartY;
+		}
+
+		public void setAbsEndX(int absEndX) {
+			fields[offset + Metrics.ABS_END_X] = absEndX;
+		}
+
+		public void setAbsEndY(int absEndY) {
+			fields[offset + Metrics.ABS_END_Y] = absEndY;
+		}
+
+		public void setRelCentroidX(int relCentroidX) {
+			fields[offset + Metrics.REL_CENTROID_X] = relCentroidX;
+		}
+
+		public void setRelEccentricityX(int relEccentricityX) {
+			fields[offset + Metrics.REL_ECCENTRICITY_X] = relEccentricityX;
+		}
+
+		public void setRelVelocityX(int relVelocityX) {
+			fields[offset + Metrics.REL_VELOCITY_X] = relVelocityX;
+		}
+	}
+}
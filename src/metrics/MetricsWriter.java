@@ -0,0 +1,112 @@
+package metrics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes <code>Metrics</code> to a compact binary file, as fixed-width
+ * records of seven big-endian <code>int</code>s after a short header. Read
+ * the file back with <code>MetricsReader</code>.
+ * 
+ * Header layout: magic number, format version, fields per record, reserved.
+ */
+public class MetricsWriter implements Closeable {
+	public static final int MAGIC = 0x5249434D; // "RICM"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = Metrics.FIELD_COUNT * 4;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates (or overwrites) a metrics file and writes its header.
+	 * 
+	 * @param file
+	 *            The file to write to.
+	 * @throws IOException
+	 */
+	public MetricsWriter(File file) throws IOException {
+		channel = new FileOutputStream(file).getChannel();
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE - (BUFFER_SIZE % RECORD_SIZE));
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(Metrics.FIELD_COUNT);
+		buffer.putInt(0);
+	}
+
+	/**
+	 * Appends a single frame's metrics.
+	 * 
+	 * @param metrics
+	 *            The metrics to write.
+	 * @throws IOException
+	 */
+	public void write(Metrics metrics) throws IOException {
+		if (buffer.remaining() < RECORD_SIZE) {
+			flush();
+		}
+		buffer.putInt(metrics.getAbsStartX());
+		buffer.putInt(metrics.getAbsStartY());
+		buffer.putInt(metrics.getAbsEndX());
+		buffer.putInt(metrics.getAbsEndY());
+		buffer.putInt(metrics.getRelCentroidX());
+		buffer.putInt(metrics.getRelEccentricityX());
+		buffer.putInt(metrics.getRelVelocityX());
+	}
+
+	/**
+	 * Appends several frames' metrics, stored one record after another in the
+	 * same order as <code>Metrics.getMetrics()</code>.
+	 * 
+	 * @param fields
+	 *            The interleaved metrics to write.
+	 * @param offset
+	 *            The first value to write, at the start of a record.
+	 * @param records
+	 *            The number of records to write.
+	 * @throws IOException
+	 */
+	public void write(int[] fields, int offset, int records) throws IOException {
+		int end = offset + records * Metrics.FIELD_COUNT;
+		while (offset < end) {
+			if (buffer.remaining() < RECORD_SIZE) {
+				flush();
+			}
+			int count = Math.min(end - offset, (buffer.remaining() / RECORD_SIZE) * Metrics.FIELD_COUNT);
+			buffer.asIntBuffer().put(fields, offset, count);
+			buffer.position(buffer.position() + count * 4);
+			offset += count;
+		}
+	}
+
+	/**
+	 * Writes any buffered records to the file.
+	 * 
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Flushes and closes the file.
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package metrics;
+
+import fileHandling.CSVHandler;
+import opencsv.CSVWriter;
+
+/**
+ * Fills in the relative metrics of frames as they arrive, in frame order, and
+ * writes each completed record straight out as a csv line. Only a small
+ * window of previous frames is kept, so a whole session never needs to be
+ * held in memory or passed over twice.
+ *
+ * The centre of mass of a frame is taken to be absStartX + relCentroidX.
+ * relVelocityX is how far it has moved right per frame, averaged over the
+ * last <code>window</code> frames, or over as many as have been seen since the
+ * start or the last frame with no bounding box. With a window of 1 this is
+ * the same velocity <code>MetricsExtractor</code> gives.
+ *
+ * For frames that only have a bounding box, the stage can also estimate
+ * relCentroidX as the middle of the box.
+ */
+public class RelativeMetricsStage {
+	public static final int DEFAULT_WINDOW = 1;
+
+	private final CSVHandler handler;
+	private final CSVWriter writer;
+	private final boolean estimateCentroid;
+
+	// The last window + 1 centres of mass, as a ring.
+	private final int[] centroids;
+	private int history = 0;
+	private int newest = -1;
+
+	private final int[] record = new int[Metrics.FIELD_COUNT];
+	private long frames = 0;
+
+	/**
+	 * Constructor, writing through a handler's open csv stream.
+	 *
+	 * @param handler
+	 *            The handler to write to, with openCSVStream() already called.
+	 * @param window
+	 *            How many frames to average velocity over.
+	 * @param estimateCentroid
+	 *            Whether to replace relCentroidX with the middle of the
+	 *            bounding box.
+	 */
+	public RelativeMetricsStage(CSVHandler handler, int window, boolean estimateCentroid) {
+		this(handler, null, window, estimateCentroid);
+	}
+
+	/**
+	 * Constructor, writing to a <code>CSVWriter</code>.
+	 *
+	 * @param writer
+	 *            The writer to write to. It is not flushed or closed.
+	 * @param window
+	 *            How many frames to average velocity over.
+	 * @param estimateCentroid
+	 *            Whether to replace relCentroidX with the middle of the
+	 *            bounding box.
+	 */
+	public RelativeMetricsStage(CSVWriter writer, int window, boolean estimateCentroid) {
+		this(null, writer, window, estimateCentroid);
+	}
+
+	private RelativeMetricsStage(CSVHandler handler, CSVWriter writer, int window, boolean estimateCentroid) {
+		if (window < 1) {
+			throw new IllegalArgumentException("Window must be at least one frame!");
+		}
+		this.handler = handler;
+		this.writer = writer;
+		this.estimateCentroid = estimateCentroid;
+		this.centroids = new int[window + 1];
+	}
+
+	/**
+	 * Fills in a frame's relative metrics and writes it out.
+	 *
+	 * @param metrics
+	 *            The next frame. Its relative metrics are updated in place.
+	 */
+	public void process(Metrics metrics) {
+		record[Metrics.ABS_START_X] = metrics.getAbsStartX();
+		record[Metrics.ABS_START_Y] = metrics.getAbsStartY();
+		record[Metrics.ABS_END_X] = metrics.getAbsEndX();
+		record[Metrics.ABS_END_Y] = metrics.getAbsEndY();
+		record[Metrics.REL_CENTROID_X] = metrics.getRelCentroidX();
+		record[Metrics.REL_ECCENTRICITY_X] = metrics.getRelEccentricityX();
+		complete();
+		metrics.setRelCentroidX(record[Metrics.REL_CENTROID_X]);
+		metrics.setRelVelocityX(record[Metrics.REL_VELOCITY_X]);
+		write();
+	}
+
+	/**
+	 * Fills in the relative metrics of a frame known only by its bounding box,
+	 * and writes it out. No objects are created.
+	 *
+	 * @param absStartX
+	 *            x-coordinate of top-left corner of bounding box.
+	 * @param absStartY
+	 *            y-coordinate of top-left corner of bounding box.
+	 * @param absEndX
+	 *            x-coordinate of bottom-right corner of bounding box.
+	 * @param absEndY
+	 *            y-coordinate of bottom-right corner of bounding box.
+	 */
+	public void process(int absStartX, int absStartY, int absEndX, int absEndY) {
+		record[Metrics.ABS_START_X] = absStartX;
+		record[Metrics.ABS_START_Y] = absStartY;
+		record[Metrics.ABS_END_X] = absEndX;
+		record[Metrics.ABS_END_Y] = absEndY;
+		record[Metrics.REL_CENTROID_X] = 0;
+		record[Metrics.REL_ECCENTRICITY_X] = 0;
+		complete();
+		write();
+	}
+
+	/**
+	 * Returns how many frames have been written.
+	 *
+	 * @return The number of frames processed.
+	 */
+	public long getFramesProcessed() {
+		return frames;
+	}
+
+	/**
+	 * Forgets previous frames, e.g. at a cut between sequences.
+	 */
+	public void reset() {
+		history = 0;
+		newest = -1;
+	}
+
+	/**
+	 * Works out the relative metrics of the frame in record.
+	 */
+	private void complete() {
+		int startX = record[Metrics.ABS_START_X];
+		if (startX < 0) {
+			// No bounding box: nothing to measure, and no motion to carry on.
+			if (estimateCentroid) {
+				record[Metrics.REL_CENTROID_X] = 0;
+			}
+			record[Metrics.REL_VELOCITY_X] = 0;
+			reset();
+			return;
+		}
+		if (estimateCentroid) {
+			record[Metrics.REL_CENTROID_X] = (record[Metrics.ABS_END_X] - startX) / 2;
+		}
+		int centroid = startX + record[Metrics.REL_CENTROID_X];
+
+		newest = (newest + 1) % centroids.length;
+		centroids[newest] = centroid;
+		if (history < centroids.length) {
+			history++;
+		}
+
+		int span = history - 1;
+		if (span == 0) {
+			record[Metrics.REL_VELOCITY_X] = 0;
+		} else {
+			int oldest = (newest - span + centroids.length) % centroids.length;
+			record[Metrics.REL_VELOCITY_X] = (centroid - centroids[oldest]) / span;
+		}
+	}
+
+	private void write() {
+		if (handler != null) {
+			handler.writeCSVLine(record);
+		} else {
+			writer.writeNext(record);
+		}
+		frames++;
+	}
+}
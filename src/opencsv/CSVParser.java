@@ -160,6 +160,17 @@ public class CSVParser {
     	return pending != null;
     }
 
+    /**
+     * Seeds the in-field state carried between lines, so a parser can pick up
+     * part way through a file.
+     *
+     * @param inField
+     *            the state left by the previous line
+     */
+    void setInField(boolean inField) {
+    	this.inField = inField;
+    }
+
     public String[] parseLineMulti(String nextLine) throws IOException {
     	return parseLine(nextLine, true);
     }
@@ -18,10 +18,13 @@ package opencsv;
 
 import java.io.BufferedReader;
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * A very simple CSV reader released under a commercial-friendly license.
@@ -29,10 +32,12 @@ import java.util.List;
  * @author Glen Smith
  * 
  */
-public class CSVReader implements Closeable {
+public class CSVReader implements Closeable, Iterable<String[]> {
 
     private BufferedReader br;
 
+    private MappedFileReader mapped;
+
     private boolean hasNext = true;
 
     private CSVParser parser;
@@ -195,6 +200,57 @@ public class CSVReader implements Closeable {
         this.skipLines = line;
     }
 
+    /**
+     * Constructs CSVReader that memory-maps the given file, using a comma for
+     * the separator. The file is decoded as UTF-8.
+     *
+     * @param file
+     *            the CSV file to read.
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public CSVReader(File file) throws IOException {
+        this(file, CSVParser.DEFAULT_SEPARATOR, CSVParser.DEFAULT_QUOTE_CHARACTER, CSVParser.DEFAULT_ESCAPE_CHARACTER,
+                DEFAULT_SKIP_LINES, CSVParser.DEFAULT_STRICT_QUOTES, CSVParser.DEFAULT_IGNORE_LEADING_WHITESPACE);
+    }
+
+    /**
+     * Constructs CSVReader that memory-maps the given file. The file is
+     * decoded as UTF-8, without a <code>BufferedReader</code> in between.
+     *
+     * @param file
+     *            the CSV file to read.
+     * @param separator
+     *            the delimiter to use for separating entries
+     * @param quotechar
+     *            the character to use for quoted elements
+     * @param escape
+     *            the character to use for escaping a separator or quote
+     * @param line
+     *            the line number to skip for start reading
+     * @param strictQuotes
+     *            sets if characters outside the quotes are ignored
+     * @param ignoreLeadingWhiteSpace
+     *            it true, parser should ignore white space before a quote in a field
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public CSVReader(File file, char separator, char quotechar, char escape, int line, boolean strictQuotes, boolean ignoreLeadingWhiteSpace) throws IOException {
+        this.mapped = new MappedFileReader(file);
+        this.parser = new CSVParser(separator, quotechar, escape, strictQuotes, ignoreLeadingWhiteSpace);
+        this.skipLines = line;
+    }
+
+    /**
+     * Constructs CSVReader over an already opened mapped range, used by
+     * <code>ParallelCSVReader</code> for each chunk of a file.
+     */
+    CSVReader(MappedFileReader mapped, CSVParser parser) {
+        this.mapped = mapped;
+        this.parser = parser;
+        this.skipLines = DEFAULT_SKIP_LINES;
+    }
+
 	/**
      * Reads the entire file into a List with each element being a String[] of
      * tokens.
@@ -259,24 +315,69 @@ public class CSVReader implements Closeable {
     private String getNextLine() throws IOException {
     	if (!this.linesSkiped) {
             for (int i = 0; i < skipLines; i++) {
-                br.readLine();
+                readLine();
             }
             this.linesSkiped = true;
         }
-        String nextLine = br.readLine();
+        String nextLine = readLine();
         if (nextLine == null) {
             hasNext = false;
         }
         return hasNext ? nextLine : null;
     }
 
+    /**
+     * Returns an iterator over the remaining lines, one string array per line,
+     * without holding the whole file in memory as readAll() does. The iterator
+     * wraps any <code>IOException</code> in a <code>RuntimeException</code>.
+     * 
+     * @return an iterator over the remaining lines of the file
+     */
+    public Iterator<String[]> iterator() {
+        return new Iterator<String[]>() {
+            private String[] next;
+
+            public boolean hasNext() {
+                if (next == null && hasNext) {
+                    try {
+                        next = readNext();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String[] result = next;
+                next = null;
+                return result;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private String readLine() throws IOException {
+        return (mapped != null) ? mapped.readLine() : br.readLine();
+    }
+
     /**
      * Closes the underlying reader.
      * 
      * @throws IOException if the close fails
      */
     public void close() throws IOException{
-    	br.close();
+    	if (mapped != null) {
+    		mapped.close();
+    	} else {
+    		br.close();
+    	}
     }
     
 }
@@ -0,0 +1,33 @@
+package opencsv;
+
+/**
+ Copyright 2005 Bytecode Pty Ltd.
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+/**
+ * Receives parsed rows from <code>ParallelCSVReader</code>.
+ *
+ */
+public interface CSVRowHandler {
+
+    /**
+     * Called once for each row, always on the thread that started the read.
+     *
+     * @param row
+     *            a string array with each comma-separated element as a
+     *            separate entry.
+     */
+    public void handleRow(String[] row);
+}
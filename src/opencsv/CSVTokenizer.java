@@ -0,0 +1,611 @@
+package opencsv;
+
+/**
+ Copyright 2005 Bytecode Pty Ltd.
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A low-allocation alternative to <code>CSVReader</code>. Characters are read
+ * from the underlying <code>Reader</code> into a reusable window, and each
+ * record is tokenized into a reusable field buffer. Fields are exposed as
+ * (offset, length) slices of that buffer, so no <code>String</code> is built
+ * unless the caller asks for one with getField().
+ *
+ * Quote, escape, strict quote and leading whitespace handling are identical to
+ * <code>CSVParser.parseLineMulti</code> as driven by
+ * <code>CSVReader.readNext</code>, including quoted fields that span lines.
+ *
+ * The buffer and slices are only valid until the next call to nextRecord().
+ *
+ */
+public class CSVTokenizer implements Closeable {
+
+    /** The initial size of the read window, in characters. */
+    public static final int DEFAULT_WINDOW_SIZE = 8192;
+
+    private static final int INITIAL_FIELD_COUNT = 16;
+
+    // Powers of ten that are exact as doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Mantissas with more digits than this may not be exact as doubles
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private final Reader reader;
+
+    private final char separator;
+
+    private final char quotechar;
+
+    private final char escape;
+
+    private final boolean strictQuotes;
+
+    private final boolean ignoreLeadingWhiteSpace;
+
+    private int skipLines;
+
+    // Read window
+    private char[] window;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean skipLF;
+
+    // Current line, as a slice of the window
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+
+    // Tokenized fields, as slices of the field buffer
+    private char[] fields = new char[CSVParser.INITIAL_READ_SIZE];
+    private int fieldsLength;
+    private int[] fieldOffsets = new int[INITIAL_FIELD_COUNT];
+    private int[] fieldLengths = new int[INITIAL_FIELD_COUNT];
+    private int fieldCount;
+
+    // Carried between lines and records, as in CSVParser
+    private boolean inField = false;
+
+    /**
+     * Constructs CSVTokenizer using a comma for the separator.
+     *
+     * @param reader
+     *            the reader to an underlying CSV source.
+     */
+    public CSVTokenizer(Reader reader) {
+        this(reader, CSVParser.DEFAULT_SEPARATOR, CSVParser.DEFAULT_QUOTE_CHARACTER, CSVParser.DEFAULT_ESCAPE_CHARACTER);
+    }
+
+    /**
+     * Constructs CSVTokenizer with supplied separator and quote char.
+     *
+     * @param reader
+     *            the reader to an underlying CSV source.
+     * @param separator
+     *            the delimiter to use for separating entries
+     * @param quotechar
+     *            the character to use for quoted elements
+     * @param escape
+     *            the character to use for escaping a separator or quote
+     */
+    public CSVTokenizer(Reader reader, char separator, char quotechar, char escape) {
+        this(reader, separator, quotechar, escape, CSVReader.DEFAULT_SKIP_LINES, CSVParser.DEFAULT_STRICT_QUOTES,
+                CSVParser.DEFAULT_IGNORE_LEADING_WHITESPACE);
+    }
+
+    /**
+     * Constructs CSVTokenizer with supplied separator and quote char.
+     *
+     * @param reader
+     *            the reader to an underlying CSV source.
+     * @param separator
+     *            the delimiter to use for separating entries
+     * @param quotechar
+     *            the character to use for quoted elements
+     * @param escape
+     *            the character to use for escaping a separator or quote
+     * @param line
+     *            the line number to skip for start reading
+     * @param strictQuotes
+     *            sets if characters outside the quotes are ignored
+     * @param ignoreLeadingWhiteSpace
+     *            it true, parser should ignore white space before a quote in a field
+     */
+    public CSVTokenizer(Reader reader, char separator, char quotechar, char escape, int line, boolean strictQuotes,
+            boolean ignoreLeadingWhiteSpace) {
+        this.reader = reader;
+        this.separator = separator;
+        this.quotechar = quotechar;
+        this.escape = escape;
+        this.skipLines = line;
+        this.strictQuotes = strictQuotes;
+        this.ignoreLeadingWhiteSpace = ignoreLeadingWhiteSpace;
+        this.window = new char[DEFAULT_WINDOW_SIZE];
+    }
+
+    /**
+     * Reads and tokenizes the next record.
+     *
+     * @return true if a record was read, false at the end of the input
+     * @throws IOException
+     *             if bad things happen during the read
+     */
+    public boolean nextRecord() throws IOException {
+        while (skipLines > 0) {
+            skipLines--;
+            if (!nextLine()) {
+                return false;
+            }
+        }
+
+        fieldCount = 0;
+        fieldsLength = 0;
+        int fieldStart = 0;
+        boolean inQuotes = false;
+        do {
+            if (!nextLine()) {
+                // Input ended inside a quoted field; the pending field is
+                // dropped, as CSVReader.readNext does.
+                return fieldCount > 0;
+            }
+            char[] line = window;
+            for (int i = lineStart; i < lineEnd; i++) {
+
+                char c = line[i];
+                if (c == this.escape) {
+                    if (isNextCharacterEscapable(inQuotes || inField, i)) {
+                        append(line[i + 1]);
+                        i++;
+                    }
+                } else if (c == quotechar) {
+                    if (isNextCharacterEscapedQuote(inQuotes || inField, i)) {
+                        append(line[i + 1]);
+                        i++;
+                    } else {
+                        inQuotes = !inQuotes;
+
+                        // the tricky case of an embedded quote in the middle: a,bc"d"ef,g
+                        if (!strictQuotes) {
+                            if (i - lineStart > 2 //not on the beginning of the line
+                                    && line[i - 1] != this.separator //not at the beginning of an escape sequence
+                                    && lineEnd > (i + 1)
+                                    && line[i + 1] != this.separator //not at the end of an escape sequence
+                            ) {
+
+                                if (ignoreLeadingWhiteSpace && fieldsLength > fieldStart && isAllWhiteSpace(fieldStart)) {
+                                    fieldsLength = fieldStart; //discard white space leading up to quote
+                                } else {
+                                    append(c);
+                                }
+                            }
+                        }
+                    }
+                    inField = !inField;
+                } else if (c == separator && !inQuotes) {
+                    addField(fieldStart);
+                    fieldStart = fieldsLength; // start work on next token
+                    inField = false;
+                } else {
+                    if (!strictQuotes || inQuotes) {
+                        append(c);
+                        inField = true;
+                    }
+                }
+            }
+            if (inQuotes) {
+                // continuing a quoted section, re-append newline
+                append('\n');
+            }
+        } while (inQuotes);
+
+        addField(fieldStart);
+        return true;
+    }
+
+    /**
+     * @return the number of fields in the current record
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the buffer holding the fields of the current record. The
+     * contents are only valid until the next call to nextRecord().
+     *
+     * @return the shared field buffer
+     */
+    public char[] getBuffer() {
+        return fields;
+    }
+
+    /**
+     * @param index
+     *            the field to look up
+     * @return the offset of the field within getBuffer()
+     */
+    public int getFieldOffset(int index) {
+        checkIndex(index);
+        return fieldOffsets[index];
+    }
+
+    /**
+     * @param index
+     *            the field to look up
+     * @return the length of the field within getBuffer()
+     */
+    public int getFieldLength(int index) {
+        checkIndex(index);
+        return fieldLengths[index];
+    }
+
+    /**
+     * Builds a <code>String</code> for a single field of the current record.
+     *
+     * @param index
+     *            the field to look up
+     * @return the field as a new <code>String</code>
+     */
+    public String getField(int index) {
+        checkIndex(index);
+        return new String(fields, fieldOffsets[index], fieldLengths[index]);
+    }
+
+    /**
+     * Parses a single field of the current record as a decimal
+     * <code>int</code>, straight from the field buffer. Accepts the same input
+     * as <code>Integer.parseInt</code>.
+     *
+     * @param index
+     *            the field to parse
+     * @return the value of the field
+     * @throws NumberFormatException
+     *             if the field is not an integer, naming the line and column
+     */
+    public int getFieldAsInt(int index) {
+        checkIndex(index);
+        int i = fieldOffsets[index];
+        int end = i + fieldLengths[index];
+        if (i == end) {
+            throw notAnInt(index);
+        }
+
+        boolean negative = false;
+        int limit = -Integer.MAX_VALUE;
+        char first = fields[i];
+        if (first == '-' || first == '+') {
+            if (first == '-') {
+                negative = true;
+                limit = Integer.MIN_VALUE;
+            }
+            i++;
+            if (i == end) {
+                throw notAnInt(index);
+            }
+        }
+
+        // Accumulate negatively, as Integer.parseInt does, so MIN_VALUE fits
+        int multmin = limit / 10;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = fields[i] - '0';
+            if (digit < 0 || digit > 9) {
+                if (fields[i] >= 0x80) {
+                    // Non-ASCII digits are rare enough to leave to the JDK
+                    return parseIntSlow(index);
+                }
+                throw notAnInt(index);
+            }
+            if (result < multmin) {
+                throw notAnInt(index);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw notAnInt(index);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a single field of the current record as a <code>double</code>.
+     * Plain decimals such as "-12.5" or "3e4" are parsed straight from the
+     * field buffer; anything else is left to <code>Double.parseDouble</code>,
+     * so the result is always the same as that method's.
+     *
+     * @param index
+     *            the field to parse
+     * @return the value of the field
+     * @throws NumberFormatException
+     *             if the field is not a number, naming the line and column
+     */
+    public double getFieldAsDouble(int index) {
+        checkIndex(index);
+        int i = fieldOffsets[index];
+        int end = i + fieldLengths[index];
+
+        boolean negative = false;
+        if (i < end && (fields[i] == '-' || fields[i] == '+')) {
+            negative = (fields[i] == '-');
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = fields[i];
+            if (c == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            anyDigit = true;
+            if (fraction) {
+                exponent--;
+            }
+            if (mantissa == 0 && digit == 0) {
+                continue;
+            }
+            if (digits == MAX_EXACT_DIGITS) {
+                return parseDoubleSlow(index);
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+        }
+        if (!anyDigit) {
+            return parseDoubleSlow(index);
+        }
+
+        if (i < end && (fields[i] == 'e' || fields[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (fields[i] == '-' || fields[i] == '+')) {
+                negativeExponent = (fields[i] == '-');
+                i++;
+            }
+            if (i == end) {
+                return parseDoubleSlow(index);
+            }
+            int written = 0;
+            for (; i < end; i++) {
+                int digit = fields[i] - '0';
+                if (digit < 0 || digit > 9 || written > POWERS_OF_TEN.length) {
+                    return parseDoubleSlow(index);
+                }
+                written = written * 10 + digit;
+            }
+            exponent += negativeExponent ? -written : written;
+        }
+        if (i != end) {
+            return parseDoubleSlow(index);
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            return parseDoubleSlow(index);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Builds the current record as a string array, in the same form that
+     * <code>CSVReader.readNext</code> returns.
+     *
+     * @return a string array with each comma-separated element as a separate
+     *         entry.
+     */
+    public String[] getFields() {
+        String[] result = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            result[i] = new String(fields, fieldOffsets[i], fieldLengths[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of physical lines read so far, including skipped
+     *         lines
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException if the close fails
+     */
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Finds the next line in the window, refilling it as needed. Line
+     * terminators are the same as for <code>BufferedReader.readLine</code>.
+     *
+     * @return false if there are no more lines
+     */
+    private boolean nextLine() throws IOException {
+        if (skipLF) {
+            if (pos == limit) {
+                fill();
+            }
+            if (pos < limit && window[pos] == '\n') {
+                pos++;
+            }
+            skipLF = false;
+        }
+
+        int i = pos;
+        while (true) {
+            for (; i < limit; i++) {
+                char c = window[i];
+                if (c == '\n' || c == '\r') {
+                    lineStart = pos;
+                    lineEnd = i;
+                    pos = i + 1;
+                    skipLF = (c == '\r');
+                    lineNumber++;
+                    return true;
+                }
+            }
+            int scanned = i - pos;
+            if (!fill()) {
+                if (pos == limit) {
+                    return false;
+                }
+                lineStart = pos;
+                lineEnd = limit;
+                pos = limit;
+                lineNumber++;
+                return true;
+            }
+            i = pos + scanned;
+        }
+    }
+
+    /**
+     * Moves any unread characters to the start of the window, growing it if
+     * it is full, then reads more from the underlying reader.
+     *
+     * @return false if the underlying reader is exhausted
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            System.arraycopy(window, pos, window, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == window.length) {
+            char[] grown = new char[window.length * 2];
+            System.arraycopy(window, 0, grown, 0, limit);
+            window = grown;
+        }
+        int read;
+        do {
+            read = reader.read(window, limit, window.length - limit);
+        } while (read == 0);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    private void append(char c) {
+        if (fieldsLength == fields.length) {
+            char[] grown = new char[fields.length * 2];
+            System.arraycopy(fields, 0, grown, 0, fieldsLength);
+            fields = grown;
+        }
+        fields[fieldsLength++] = c;
+    }
+
+    private void addField(int fieldStart) {
+        if (fieldCount == fieldOffsets.length) {
+            int[] grownOffsets = new int[fieldCount * 2];
+            int[] grownLengths = new int[fieldCount * 2];
+            System.arraycopy(fieldOffsets, 0, grownOffsets, 0, fieldCount);
+            System.arraycopy(fieldLengths, 0, grownLengths, 0, fieldCount);
+            fieldOffsets = grownOffsets;
+            fieldLengths = grownLengths;
+        }
+        fieldOffsets[fieldCount] = fieldStart;
+        fieldLengths[fieldCount] = fieldsLength - fieldStart;
+        fieldCount++;
+    }
+
+    private int parseIntSlow(int index) {
+        try {
+            return Integer.parseInt(getField(index));
+        } catch (NumberFormatException e) {
+            throw notAnInt(index);
+        }
+    }
+
+    private double parseDoubleSlow(int index) {
+        try {
+            return Double.parseDouble(getField(index));
+        } catch (NumberFormatException e) {
+            throw notA(index, "a number");
+        }
+    }
+
+    private NumberFormatException notAnInt(int index) {
+        return notA(index, "an integer");
+    }
+
+    private NumberFormatException notA(int index, String what) {
+        return new NumberFormatException("Line " + lineNumber + ", column " + (index + 1) + ": \""
+                + getField(index) + "\" is not " + what);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+
+    /**
+     * precondition: the current character is a quote or an escape
+     */
+    private boolean isNextCharacterEscapedQuote(boolean inQuotes, int i) {
+        return inQuotes && lineEnd > (i + 1) && window[i + 1] == quotechar;
+    }
+
+    /**
+     * precondition: the current character is an escape
+     */
+    private boolean isNextCharacterEscapable(boolean inQuotes, int i) {
+        return inQuotes && lineEnd > (i + 1) && (window[i + 1] == quotechar || window[i + 1] == this.escape);
+    }
+
+    /**
+     * precondition: fieldsLength > fieldStart
+     */
+    private boolean isAllWhiteSpace(int fieldStart) {
+        for (int i = fieldStart; i < fieldsLength; i++) {
+            if (!Character.isWhitespace(fields[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -34,6 +34,9 @@ public class CSVWriter implements Closeable {
     
     public static final int INITIAL_STRING_SIZE = 128;
 
+    /** Buffered characters are passed to the writer once there are this many. */
+    public static final int FLUSH_THRESHOLD = 64 * 1024;
+
 	private Writer rawWriter;
 
     private PrintWriter pw;
@@ -46,6 +49,13 @@ public class CSVWriter implements Closeable {
     
     private String lineEnd;
 
+    // Reused for every row, and only handed to the writer in large blocks
+    private char[] buffer = new char[FLUSH_THRESHOLD + INITIAL_STRING_SIZE];
+    private int bufferLength;
+
+    // Reused to format doubles exactly as Double.toString() does
+    private final StringBuilder numberScratch = new StringBuilder(32);
+
     /** The character used for escaping quotes. */
     public static final char DEFAULT_ESCAPE_CHARACTER = '"';
 
@@ -220,34 +230,153 @@ public class CSVWriter implements Closeable {
     	if (nextLine == null)
     		return;
     	
-        StringBuilder sb = new StringBuilder(INITIAL_STRING_SIZE);
         for (int i = 0; i < nextLine.length; i++) {
 
             if (i != 0) {
-                sb.append(separator);
+                append(separator);
             }
 
             String nextElement = nextLine[i];
             if (nextElement == null)
                 continue;
             if (quotechar !=  NO_QUOTE_CHARACTER)
-            	sb.append(quotechar);
+            	append(quotechar);
             
-            sb.append(stringContainsSpecialCharacters(nextElement) ? processLine(nextElement) : nextElement);
+            if (stringContainsSpecialCharacters(nextElement)) {
+                append(processLine(nextElement));
+            } else {
+                append(nextElement);
+            }
 
             if (quotechar != NO_QUOTE_CHARACTER)
-            	sb.append(quotechar);
+            	append(quotechar);
         }
         
-        sb.append(lineEnd);
-        pw.write(sb.toString());
+        endLine();
+    }
+
+    /**
+     * Writes the next line to the file, formatting each value straight into
+     * the writer's buffer. The output is the same as passing the values
+     * through <code>Integer.toString</code> to writeNext(String[]).
+     *
+     * @param nextLine
+     *            the values to write, one per entry.
+     */
+    public void writeNext(int[] nextLine) {
+    	
+    	if (nextLine == null)
+    		return;
+    	
+        for (int i = 0; i < nextLine.length; i++) {
+
+            if (i != 0) {
+                append(separator);
+            }
+            if (quotechar != NO_QUOTE_CHARACTER)
+            	append(quotechar);
+            appendInt(nextLine[i]);
+            if (quotechar != NO_QUOTE_CHARACTER)
+            	append(quotechar);
+        }
+
+        endLine();
+    }
+
+    /**
+     * Writes the next line to the file, formatting each value into the
+     * writer's buffer. The output is the same as passing the values through
+     * <code>Double.toString</code> to writeNext(String[]).
+     *
+     * @param nextLine
+     *            the values to write, one per entry.
+     */
+    public void writeNext(double[] nextLine) {
+    	
+    	if (nextLine == null)
+    		return;
+    	
+        for (int i = 0; i < nextLine.length; i++) {
 
+            if (i != 0) {
+                append(separator);
+            }
+            if (quotechar != NO_QUOTE_CHARACTER)
+            	append(quotechar);
+            numberScratch.setLength(0);
+            numberScratch.append(nextLine[i]);
+            append(numberScratch);
+            if (quotechar != NO_QUOTE_CHARACTER)
+            	append(quotechar);
+        }
+
+        endLine();
     }
 
 	private boolean stringContainsSpecialCharacters(String line) {
 	    return line.indexOf(quotechar) != -1 || line.indexOf(escapechar) != -1;
     }
 
+	private void appendInt(int value) {
+	    if (value == Integer.MIN_VALUE) {
+	        append("-2147483648");
+	        return;
+	    }
+	    if (value < 0) {
+	        append('-');
+	        value = -value;
+	    }
+	    int digits = 1;
+	    for (int v = value; v >= 10; v /= 10) {
+	        digits++;
+	    }
+	    ensureCapacity(digits);
+	    int end = bufferLength + digits;
+	    for (int pos = end - 1; pos >= bufferLength; pos--) {
+	        buffer[pos] = (char) ('0' + value % 10);
+	        value /= 10;
+	    }
+	    bufferLength = end;
+	}
+
+	private void append(char c) {
+	    ensureCapacity(1);
+	    buffer[bufferLength++] = c;
+	}
+
+	private void append(CharSequence chars) {
+	    int length = chars.length();
+	    ensureCapacity(length);
+	    if (chars instanceof String) {
+	        ((String) chars).getChars(0, length, buffer, bufferLength);
+	    } else {
+	        for (int i = 0; i < length; i++) {
+	            buffer[bufferLength + i] = chars.charAt(i);
+	        }
+	    }
+	    bufferLength += length;
+	}
+
+	private void ensureCapacity(int extra) {
+	    if (bufferLength + extra > buffer.length) {
+	        char[] grown = new char[Math.max(buffer.length * 2, bufferLength + extra)];
+	        System.arraycopy(buffer, 0, grown, 0, bufferLength);
+	        buffer = grown;
+	    }
+	}
+
+	private void endLine() {
+	    append(lineEnd);
+	    if (bufferLength >= FLUSH_THRESHOLD) {
+	        writeBuffer();
+	    }
+	}
+
+	private void writeBuffer() {
+	    pw.write(buffer, 0, bufferLength);
+	    bufferLength = 0;
+	}
+
 	protected StringBuilder processLine(String nextElement)
     {
 		StringBuilder sb = new StringBuilder(INITIAL_STRING_SIZE);
@@ -272,6 +401,7 @@ public class CSVWriter implements Closeable {
      */
     public void flush() throws IOException {
 
+        writeBuffer();
         pw.flush();
 
     } 
@@ -292,6 +422,7 @@ public class CSVWriter implements Closeable {
      *  Checks to see if the there has been an error in the printstream. 
      */
     public boolean checkError() {
+        writeBuffer();
         return pw.checkError();
     }
 
@@ -0,0 +1,313 @@
+package opencsv;
+
+/**
+ Copyright 2005 Bytecode Pty Ltd.
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a UTF-8 (or plain ASCII) file by memory-mapping it in segments and
+ * decoding the bytes directly, without a <code>CharsetDecoder</code> or an
+ * intermediate <code>BufferedReader</code>. Malformed input is replaced with
+ * U+FFFD.
+ *
+ * readLine() follows the same line terminator rules as
+ * <code>BufferedReader.readLine</code>, so <code>CSVReader</code> can use it
+ * in place of one.
+ *
+ */
+public class MappedFileReader extends Reader {
+
+    /** The default number of bytes to map at a time. */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    // Longest UTF-8 sequence, so a character never straddles two segments.
+    private static final int MAX_SEQUENCE_LENGTH = 4;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final long end;
+
+    private final int segmentSize;
+
+    private MappedByteBuffer segment;
+
+    private long segmentStart;
+
+    // Second half of a surrogate pair that did not fit in the caller's buffer
+    private char pendingLowSurrogate;
+    private boolean hasPendingLowSurrogate;
+
+    private char[] lineBuffer = new char[CSVParser.INITIAL_READ_SIZE];
+
+    /**
+     * Opens and maps the given file.
+     *
+     * @param file
+     *            the file to read.
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public MappedFileReader(File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens and maps the given file.
+     *
+     * @param file
+     *            the file to read.
+     * @param segmentSize
+     *            the number of bytes to map at a time.
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public MappedFileReader(File file, int segmentSize) throws IOException {
+        this(file, 0, -1, segmentSize);
+    }
+
+    /**
+     * Opens and maps a byte range of the given file. The range should start
+     * on a character boundary.
+     *
+     * @param file
+     *            the file to read.
+     * @param start
+     *            the offset of the first byte to read.
+     * @param end
+     *            the offset just past the last byte to read, or -1 for the end
+     *            of the file.
+     * @param segmentSize
+     *            the number of bytes to map at a time.
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public MappedFileReader(File file, long start, long end, int segmentSize) throws IOException {
+        if (segmentSize < MAX_SEQUENCE_LENGTH) {
+            throw new IllegalArgumentException("Segment size must be at least " + MAX_SEQUENCE_LENGTH + " bytes");
+        }
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.segmentSize = segmentSize;
+        try {
+            long size = channel.size();
+            this.end = (end < 0 || end > size) ? size : end;
+            if (start < 0 || start > this.end) {
+                throw new IllegalArgumentException("Start offset " + start + " is outside the file");
+            }
+            map(start);
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        } catch (RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads characters into a portion of an array.
+     *
+     * @return the number of characters read, or -1 at the end of the file
+     * @throws IOException
+     *             if a segment cannot be mapped
+     */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        if (hasPendingLowSurrogate) {
+            cbuf[off + n++] = pendingLowSurrogate;
+            hasPendingLowSurrogate = false;
+        }
+        while (n < len) {
+            if (!ensureAvailable()) {
+                break;
+            }
+            if (segment.get(segment.position()) < 0) {
+                int c = decode();
+                if (c > Character.MAX_VALUE) {
+                    cbuf[off + n++] = highSurrogate(c);
+                    if (n < len) {
+                        cbuf[off + n++] = lowSurrogate(c);
+                    } else {
+                        pendingLowSurrogate = lowSurrogate(c);
+                        hasPendingLowSurrogate = true;
+                    }
+                } else {
+                    cbuf[off + n++] = (char) c;
+                }
+                continue;
+            }
+            // ASCII fast path
+            int run = Math.min(len - n, segment.remaining());
+            int start = segment.position();
+            int i = 0;
+            while (i < run) {
+                byte b = segment.get(start + i);
+                if (b < 0) {
+                    break;
+                }
+                cbuf[off + n + i] = (char) b;
+                i++;
+            }
+            segment.position(start + i);
+            n += i;
+        }
+        return (n == 0) ? -1 : n;
+    }
+
+    /**
+     * Reads a line of text, terminated by '\n', '\r' or "\r\n".
+     *
+     * @return the line without its terminator, or null at the end of the file
+     * @throws IOException
+     *             if a segment cannot be mapped
+     */
+    public String readLine() throws IOException {
+        int n = 0;
+        if (hasPendingLowSurrogate) {
+            lineBuffer[n++] = pendingLowSurrogate;
+            hasPendingLowSurrogate = false;
+        }
+        while (true) {
+            if (!ensureAvailable()) {
+                return (n == 0) ? null : new String(lineBuffer, 0, n);
+            }
+            int c = segment.get();
+            if (c < 0) {
+                segment.position(segment.position() - 1);
+                c = decode();
+            }
+            if (c == '\n') {
+                return new String(lineBuffer, 0, n);
+            }
+            if (c == '\r') {
+                if (ensureAvailable() && segment.get(segment.position()) == '\n') {
+                    segment.position(segment.position() + 1);
+                }
+                return new String(lineBuffer, 0, n);
+            }
+            if (n + 2 > lineBuffer.length) {
+                char[] grown = new char[lineBuffer.length * 2];
+                System.arraycopy(lineBuffer, 0, grown, 0, n);
+                lineBuffer = grown;
+            }
+            if (c > Character.MAX_VALUE) {
+                lineBuffer[n++] = highSurrogate(c);
+                lineBuffer[n++] = lowSurrogate(c);
+            } else {
+                lineBuffer[n++] = (char) c;
+            }
+        }
+    }
+
+    /**
+     * Closes the underlying file. Mapped segments are released by the garbage
+     * collector.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Decodes one multi-byte UTF-8 sequence at the current position.
+     * precondition: ensureAvailable() returned true
+     *
+     * @return the decoded code point
+     */
+    private int decode() {
+        int b0 = segment.get() & 0xFF;
+        int extra;
+        int min;
+        int c;
+        if (b0 < 0x80) {
+            return b0;
+        } else if ((b0 & 0xE0) == 0xC0) {
+            extra = 1;
+            min = 0x80;
+            c = b0 & 0x1F;
+        } else if ((b0 & 0xF0) == 0xE0) {
+            extra = 2;
+            min = 0x800;
+            c = b0 & 0x0F;
+        } else if ((b0 & 0xF8) == 0xF0) {
+            extra = 3;
+            min = 0x10000;
+            c = b0 & 0x07;
+        } else {
+            return REPLACEMENT_CHARACTER;
+        }
+        for (int i = 0; i < extra; i++) {
+            if (!segment.hasRemaining()) {
+                return REPLACEMENT_CHARACTER;
+            }
+            int b = segment.get(segment.position()) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                // Leave the offending byte to be decoded on its own
+                return REPLACEMENT_CHARACTER;
+            }
+            segment.position(segment.position() + 1);
+            c = (c << 6) | (b & 0x3F);
+        }
+        if (c < min || c > Character.MAX_CODE_POINT || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT_CHARACTER;
+        }
+        return c;
+    }
+
+    /**
+     * Makes sure a complete character can be read from the current segment,
+     * mapping the next segment if necessary.
+     *
+     * @return false at the end of the file
+     */
+    private boolean ensureAvailable() throws IOException {
+        if (segment.remaining() < MAX_SEQUENCE_LENGTH) {
+            long position = segmentStart + segment.position();
+            if (segmentStart + segment.limit() < end) {
+                map(position);
+            }
+        }
+        return segment.hasRemaining();
+    }
+
+    private static char highSurrogate(int codePoint) {
+        return (char) (((codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT) >>> 10) + Character.MIN_HIGH_SURROGATE);
+    }
+
+    private static char lowSurrogate(int codePoint) {
+        return (char) (((codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT) & 0x3FF) + Character.MIN_LOW_SURROGATE);
+    }
+
+    private void map(long position) throws IOException {
+        long length = Math.min(segmentSize, end - position);
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        segmentStart = position;
+    }
+}
@@ -0,0 +1,410 @@
+package opencsv;
+
+/**
+ Copyright 2005 Bytecode Pty Ltd.
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a CSV file in parallel. The file is split into byte ranges at record
+ * boundaries, and each range is parsed by its own <code>CSVReader</code> on a
+ * worker thread.
+ *
+ * Finding the boundaries takes one quick scan over the raw bytes, which tracks
+ * the same quote and escape state as <code>CSVParser</code>, so a quoted field
+ * spanning several lines is never split. The separator, quote and escape
+ * characters must therefore be ASCII, and the file is decoded as UTF-8.
+ *
+ */
+public class ParallelCSVReader {
+
+    /** The default target size of each chunk, in bytes. */
+    public static final long DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private final File file;
+
+    private final char separator;
+
+    private final char quotechar;
+
+    private final char escape;
+
+    private final int skipLines;
+
+    private final boolean strictQuotes;
+
+    private final boolean ignoreLeadingWhiteSpace;
+
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private int maxPendingChunks = Runtime.getRuntime().availableProcessors() * 2;
+
+    // Found by split()
+    private long[] chunkStarts;
+    private boolean[] chunkInField;
+    private long fileSize;
+
+    /**
+     * Constructs ParallelCSVReader using a comma for the separator.
+     *
+     * @param file
+     *            the CSV file to read.
+     */
+    public ParallelCSVReader(File file) {
+        this(file, CSVParser.DEFAULT_SEPARATOR, CSVParser.DEFAULT_QUOTE_CHARACTER, CSVParser.DEFAULT_ESCAPE_CHARACTER,
+                CSVReader.DEFAULT_SKIP_LINES, CSVParser.DEFAULT_STRICT_QUOTES, CSVParser.DEFAULT_IGNORE_LEADING_WHITESPACE);
+    }
+
+    /**
+     * Constructs ParallelCSVReader with supplied separator and quote char.
+     *
+     * @param file
+     *            the CSV file to read.
+     * @param separator
+     *            the delimiter to use for separating entries
+     * @param quotechar
+     *            the character to use for quoted elements
+     * @param escape
+     *            the character to use for escaping a separator or quote
+     * @param line
+     *            the line number to skip for start reading
+     * @param strictQuotes
+     *            sets if characters outside the quotes are ignored
+     * @param ignoreLeadingWhiteSpace
+     *            it true, parser should ignore white space before a quote in a field
+     */
+    public ParallelCSVReader(File file, char separator, char quotechar, char escape, int line, boolean strictQuotes,
+            boolean ignoreLeadingWhiteSpace) {
+        if (separator >= 0x80 || quotechar >= 0x80 || escape >= 0x80) {
+            throw new IllegalArgumentException("Separator, quote and escape characters must be ASCII");
+        }
+        this.file = file;
+        this.separator = separator;
+        this.quotechar = quotechar;
+        this.escape = escape;
+        this.skipLines = line;
+        this.strictQuotes = strictQuotes;
+        this.ignoreLeadingWhiteSpace = ignoreLeadingWhiteSpace;
+    }
+
+    /**
+     * Sets the target size of each chunk. Chunks end on the first record
+     * boundary after this many bytes. Must be called before the file is split.
+     *
+     * @param chunkSize
+     *            the target chunk size, in bytes.
+     */
+    public void setChunkSize(long chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets how many parsed chunks may be held in memory at once, waiting to
+     * be handed to the caller.
+     *
+     * @param maxPendingChunks
+     *            the maximum number of chunks in flight.
+     */
+    public void setMaxPendingChunks(int maxPendingChunks) {
+        if (maxPendingChunks < 1) {
+            throw new IllegalArgumentException("Must allow at least one pending chunk");
+        }
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    /**
+     * Returns the number of chunks the file is split into, scanning the file
+     * for record boundaries the first time it is called.
+     *
+     * @return the number of chunks
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public int getChunkCount() throws IOException {
+        split();
+        return chunkStarts.length;
+    }
+
+    /**
+     * Opens a <code>CSVReader</code> over a single chunk. Chunks may be read
+     * concurrently, and together return the same rows as a single
+     * <code>CSVReader</code> over the whole file.
+     *
+     * @param index
+     *            the chunk to open, from 0 to getChunkCount() - 1.
+     * @return a reader over the chunk, which the caller must close
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public CSVReader openChunk(int index) throws IOException {
+        split();
+        long start = chunkStarts[index];
+        long end = (index + 1 < chunkStarts.length) ? chunkStarts[index + 1] : fileSize;
+        CSVParser parser = new CSVParser(separator, quotechar, escape, strictQuotes, ignoreLeadingWhiteSpace);
+        parser.setInField(chunkInField[index]);
+        return new CSVReader(new MappedFileReader(file, start, end, MappedFileReader.DEFAULT_SEGMENT_SIZE), parser);
+    }
+
+    /**
+     * Reads the entire file into a List, in file order, using a thread per
+     * available processor.
+     *
+     * @return a List of String[], with each String[] representing a line of the
+     *         file.
+     * @throws IOException
+     *             if bad things happen during the read
+     */
+    public List<String[]> readAll() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return readAll(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Reads the entire file into a List, in file order.
+     *
+     * @param executor
+     *            the executor to parse chunks on.
+     * @return a List of String[], with each String[] representing a line of the
+     *         file.
+     * @throws IOException
+     *             if bad things happen during the read
+     */
+    public List<String[]> readAll(ExecutorService executor) throws IOException {
+        final List<String[]> allElements = new ArrayList<String[]>();
+        read(executor, true, new CSVRowHandler() {
+            public void handleRow(String[] row) {
+                allElements.add(row);
+            }
+        });
+        return allElements;
+    }
+
+    /**
+     * Parses the file on the given executor, passing every row to the handler
+     * on the calling thread.
+     *
+     * @param executor
+     *            the executor to parse chunks on.
+     * @param ordered
+     *            if true, rows are handled in file order; otherwise each chunk
+     *            is handled as soon as it has been parsed, with rows still in
+     *            order within a chunk.
+     * @param handler
+     *            receives each row.
+     * @throws IOException
+     *             if bad things happen during the read
+     */
+    public void read(ExecutorService executor, boolean ordered, CSVRowHandler handler) throws IOException {
+        int chunks = getChunkCount();
+        // Only the chunks not yet handed over, in submission order, so a
+        // handled chunk's rows can be collected straight away.
+        LinkedList<Future<List<String[]>>> pending = new LinkedList<Future<List<String[]>>>();
+        CompletionService<List<String[]>> completion = new ExecutorCompletionService<List<String[]>>(executor);
+        int submitted = 0;
+        try {
+            while (submitted < chunks && submitted < maxPendingChunks) {
+                pending.add(submit(executor, completion, ordered, submitted));
+                submitted++;
+            }
+            for (int handled = 0; handled < chunks; handled++) {
+                Future<List<String[]>> next;
+                if (ordered) {
+                    next = pending.removeFirst();
+                } else {
+                    next = completion.take();
+                    pending.remove(next);
+                }
+                List<String[]> rows = next.get();
+                for (String[] row : rows) {
+                    handler.handleRow(row);
+                }
+                if (submitted < chunks) {
+                    pending.add(submit(executor, completion, ordered, submitted));
+                    submitted++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(pending);
+            throw new InterruptedIOException("Interrupted while reading " + file);
+        } catch (ExecutionException e) {
+            cancel(pending);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } catch (RuntimeException e) {
+            cancel(pending);
+            throw e;
+        }
+    }
+
+    private Future<List<String[]>> submit(ExecutorService executor, CompletionService<List<String[]>> completion,
+            boolean ordered, int index) {
+        ChunkTask task = new ChunkTask(index);
+        return ordered ? executor.submit(task) : completion.submit(task);
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Scans the raw bytes of the file for record boundaries, tracking the same
+     * quote and field state as <code>CSVParser.parseLineMulti</code>.
+     */
+    private void split() throws IOException {
+        if (chunkStarts != null) {
+            return;
+        }
+        List<Long> starts = new ArrayList<Long>();
+        List<Boolean> inFields = new ArrayList<Boolean>();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+
+            MappedByteBuffer segment = null;
+            long segmentStart = 0;
+            long segmentEnd = 0;
+
+            int linesToSkip = skipLines;
+            boolean inQuotes = false;
+            boolean inField = false;
+            long lastStart = 0;
+            if (linesToSkip == 0) {
+                starts.add(0L);
+                inFields.add(false);
+            }
+
+            long p = 0;
+            while (p < size) {
+                if (p + 1 >= segmentEnd && segmentEnd < size) {
+                    // Map far enough ahead to always see the next byte
+                    long length = Math.min(MappedFileReader.DEFAULT_SEGMENT_SIZE, size - p);
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, p, length);
+                    segmentStart = p;
+                    segmentEnd = p + length;
+                }
+                int c = segment.get((int) (p - segmentStart)) & 0xFF;
+                int next = (p + 1 < size) ? segment.get((int) (p + 1 - segmentStart)) & 0xFF : -1;
+
+                if (c == '\n' || c == '\r') {
+                    p += (c == '\r' && next == '\n') ? 2 : 1;
+                    if (linesToSkip > 0) {
+                        if (--linesToSkip == 0) {
+                            starts.add(p);
+                            inFields.add(false);
+                            lastStart = p;
+                        }
+                    } else if (!inQuotes && p - lastStart >= chunkSize && p < size) {
+                        starts.add(p);
+                        inFields.add(inField);
+                        lastStart = p;
+                    }
+                    continue;
+                }
+                if (linesToSkip == 0) {
+                    if (c == escape) {
+                        if ((inQuotes || inField) && (next == quotechar || next == escape)) {
+                            p++;
+                        }
+                    } else if (c == quotechar) {
+                        if ((inQuotes || inField) && next == quotechar) {
+                            p++;
+                        } else {
+                            inQuotes = !inQuotes;
+                        }
+                        inField = !inField;
+                    } else if (c == separator && !inQuotes) {
+                        inField = false;
+                    } else if (!strictQuotes || inQuotes) {
+                        inField = true;
+                    }
+                }
+                p++;
+            }
+
+            if (starts.isEmpty()) {
+                // Every line was skipped
+                starts.add(size);
+                inFields.add(false);
+            }
+            fileSize = size;
+        } finally {
+            raf.close();
+        }
+
+        chunkStarts = new long[starts.size()];
+        chunkInField = new boolean[starts.size()];
+        for (int i = 0; i < chunkStarts.length; i++) {
+            chunkStarts[i] = starts.get(i);
+            chunkInField[i] = inFields.get(i);
+        }
+    }
+
+    /**
+     * Parses a single chunk into a List.
+     */
+    private class ChunkTask implements Callable<List<String[]>> {
+        private final int index;
+
+        ChunkTask(int index) {
+            this.index = index;
+        }
+
+        public List<String[]> call() throws IOException {
+            CSVReader reader = openChunk(index);
+            try {
+                return reader.readAll();
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
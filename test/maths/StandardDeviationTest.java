@@ -0,0 +1,65 @@
+package maths;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StandardDeviationTest {
+	// Mean 3.75, population standard deviation 2.95.
+	private static final int[] VALUES = { 5, 1, 1, 8 };
+
+	private final StandardDeviation sd = new StandardDeviation();
+
+	@Test
+	public void intTableSDUsesExactMean() {
+		assertEquals(2, sd.findSDInt(intColumn(VALUES), 0));
+	}
+
+	@Test
+	public void doubleTableSDUsesExactMean() {
+		assertEquals(Math.sqrt(8.6875), sd.findSDDouble(doubleColumn(VALUES), 0), 1e-12);
+	}
+
+	@Test
+	public void intTableSDMatchesListSD() {
+		List<Integer> list = new ArrayList<Integer>();
+		for (int value : VALUES) {
+			list.add(value);
+		}
+		assertEquals(sd.findSDInt(list).intValue(), sd.findSDInt(intColumn(VALUES), 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyListIsRejected() {
+		sd.findSDInt(new ArrayList<Integer>());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyIntTableIsRejected() {
+		sd.findSDInt(new IntTable(1), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyDoubleTableIsRejected() {
+		sd.findSDDouble(new DoubleTable(1), 0);
+	}
+
+	private static IntTable intColumn(int[] values) {
+		IntTable table = new IntTable(1);
+		for (int value : values) {
+			table.addRow(new int[] { value });
+		}
+		return table;
+	}
+
+	private static DoubleTable doubleColumn(int[] values) {
+		DoubleTable table = new DoubleTable(1);
+		for (int value : values) {
+			table.addRow(new double[] { value });
+		}
+		return table;
+	}
+}
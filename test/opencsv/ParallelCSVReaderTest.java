@@ -0,0 +1,125 @@
+package opencsv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelCSVReaderTest {
+
+    private static final int ROWS = 40;
+
+    private File file;
+
+    private ExecutorService executor;
+
+    private List<List<String>> expected;
+
+    @Before
+    public void setUp() throws IOException {
+        // Every record has a quoted field that spans lines or holds quotes,
+        // so small chunks put split points inside quoted fields.
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            csv.append(i).append(',');
+            switch (i % 4) {
+            case 0:
+                csv.append("\"line one\nline two\",plain\n");
+                break;
+            case 1:
+                csv.append("\"say \"\"hi\"\", then, go\",x\n");
+                break;
+            case 2:
+                csv.append("\"escaped \\\" quote\nand \\\"\nnewline\",y\n");
+                break;
+            default:
+                csv.append("\"blank\r\n\r\nlines\",z\r\n");
+                break;
+            }
+        }
+        file = File.createTempFile("parallel", ".csv");
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write(csv.toString());
+        } finally {
+            out.close();
+        }
+
+        CSVReader reader = new CSVReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            expected = toLists(reader.readAll());
+        } finally {
+            reader.close();
+        }
+        assertEquals(ROWS, expected.size());
+
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        file.delete();
+    }
+
+    @Test
+    public void orderedReadMatchesCSVReader() throws IOException {
+        for (long chunkSize = 1; chunkSize <= 64; chunkSize++) {
+            ParallelCSVReader reader = newReader(chunkSize);
+            assertEquals("chunk size " + chunkSize, expected, toLists(reader.readAll(executor)));
+        }
+    }
+
+    @Test
+    public void unorderedReadMatchesCSVReader() throws IOException {
+        for (long chunkSize = 1; chunkSize <= 64; chunkSize++) {
+            ParallelCSVReader reader = newReader(chunkSize);
+            final List<String[]> rows = new ArrayList<String[]>();
+            reader.read(executor, false, new CSVRowHandler() {
+                public void handleRow(String[] row) {
+                    rows.add(row);
+                }
+            });
+            // Chunks arrive in any order; the first field gives file order.
+            Collections.sort(rows, new Comparator<String[]>() {
+                public int compare(String[] a, String[] b) {
+                    return Integer.parseInt(a[0]) - Integer.parseInt(b[0]);
+                }
+            });
+            assertEquals("chunk size " + chunkSize, expected, toLists(rows));
+        }
+    }
+
+    private ParallelCSVReader newReader(long chunkSize) throws IOException {
+        ParallelCSVReader reader = new ParallelCSVReader(file);
+        reader.setChunkSize(chunkSize);
+        reader.setMaxPendingChunks(2);
+        assertTrue(reader.getChunkCount() > 1);
+        return reader;
+    }
+
+    private static List<List<String>> toLists(List<String[]> rows) {
+        List<List<String>> lists = new ArrayList<List<String>>(rows.size());
+        for (String[] row : rows) {
+            lists.add(Arrays.asList(row));
+        }
+        return lists;
+    }
+}